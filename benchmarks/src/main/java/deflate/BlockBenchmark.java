@@ -0,0 +1,71 @@
+package deflate;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Throughput of the stages that don't depend on the compression level, per input: the block probe, literal
+// blocks and the block checksum. The counters are those of CodecBenchmark.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BlockBenchmark {
+    @Param({"Java.html", "JavaScript.html", "MonteCarlo.html", "RTU.html", "Rainis.html",
+            Corpus.RANDOM, Corpus.REPETITIVE, Corpus.LARGE})
+    public String input;
+
+    private byte[] data; // Uncompressed input
+    private byte[] literalData; // The input Huffman coded as a literal block
+    private final CRC32C crc = new CRC32C();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        data = Corpus.load(input);
+        literalData = new Huffman().compress(data);
+    }
+
+    @Benchmark
+    public int probe(CodecBenchmark.Bytes bytes) {
+        int type = BlockProbe.probe(data, 0, data.length);
+        bytes.add(data.length, 0);
+        return type;
+    }
+
+    @Benchmark
+    public byte[] literalEncode(CodecBenchmark.Bytes bytes) {
+        byte[] result = new Huffman().compress(data);
+        bytes.add(data.length, result.length);
+        return result;
+    }
+
+    @Benchmark
+    public byte[] literalDecode(CodecBenchmark.Bytes bytes) {
+        byte[] result = new Huffman().decompress(literalData);
+        bytes.add(literalData.length, result.length);
+        return result;
+    }
+
+    @Benchmark
+    public long checksum(CodecBenchmark.Bytes bytes) {
+        crc.reset();
+        crc.update(data, 0, data.length);
+        bytes.add(data.length, 0);
+        return crc.getValue();
+    }
+}
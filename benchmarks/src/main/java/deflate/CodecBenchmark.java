@@ -0,0 +1,141 @@
+package deflate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Throughput of each codec stage and of whole archives, per input and compression level. Stages that
+// don't depend on the level are in BlockBenchmark.
+// The inputBytes and outputBytes counters are reported per second: inputBytes / 10^6 is the
+// throughput in MB/s and outputBytes / inputBytes is the size ratio of the stage.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CodecBenchmark {
+    private static final int SMALL_LENGTH = 1024; // Bytes compressed by compressSmall
+    private static final int LONG_WINDOW = 1 << 24; // Window of compressLongRange
+
+    @Param({"Java.html", "JavaScript.html", "MonteCarlo.html", "RTU.html", "Rainis.html",
+            Corpus.RANDOM, Corpus.REPETITIVE, Corpus.LARGE})
+    public String input;
+
+    @Param({"1", "6", "9", "10"})
+    public int level;
+
+    private byte[] data; // Uncompressed input
+    private final TagBuffer tagBuffer = new TagBuffer(); // LZ77 output, reused by lz77Encode
+    private byte[] tokenData; // Tags coded by TokenCoder
+    private byte[] archive; // Complete archive
+    private byte[] window; // Output buffer reused by lz77Decode
+    private final Decompressor decompressor = new Decompressor(); // Tables and tags reused by tokenDecode
+    private byte[] smallData; // Start of the input, for compressSmall
+
+    // Bytes consumed and produced by the benchmarked stage
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Bytes {
+        public long inputBytes;
+        public long outputBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            inputBytes = 0;
+            outputBytes = 0;
+        }
+
+        void add(long input, long output) {
+            inputBytes += input;
+            outputBytes += output;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        data = Corpus.load(input);
+        LZ77.encode(data, 0, data.length, level, LZ77.MAX_LENGTH, tagBuffer);
+        tokenData = TokenCoder.encode(tagBuffer, null);
+        archive = Main.compress(data, level);
+        window = new byte[data.length];
+        smallData = Arrays.copyOf(data, Math.min(data.length, SMALL_LENGTH));
+    }
+
+    @Benchmark
+    public TagBuffer lz77Encode(Bytes bytes) {
+        LZ77.encode(data, 0, data.length, level, LZ77.MAX_LENGTH, tagBuffer);
+        bytes.add(data.length, (long) tagBuffer.size() * Long.BYTES); // Packed tags take a long each
+        return tagBuffer;
+    }
+
+    // Replays the tags into the window, as decompressing does after decoding a token block
+    @Benchmark
+    public byte[] lz77Decode(Bytes bytes) {
+        int end = LZ77.decompressFromTags(tagBuffer, window, 0, window.length);
+        bytes.add((long) tagBuffer.size() * Long.BYTES, end);
+        return window;
+    }
+
+    @Benchmark
+    public byte[] tokenEncode(Bytes bytes) {
+        byte[] result = TokenCoder.encode(tagBuffer, null);
+        bytes.add(data.length, result.length);
+        return result;
+    }
+
+    @Benchmark
+    public TagBuffer tokenDecode(Bytes bytes) {
+        TokenCoder.decode(tokenData, 0, data.length, decompressor, false);
+        bytes.add(tokenData.length, data.length);
+        return decompressor.tags;
+    }
+
+    @Benchmark
+    public byte[] compress(Bytes bytes) {
+        byte[] result = Main.compress(data, level);
+        bytes.add(data.length, result.length);
+        return result;
+    }
+
+    // A small payload, where setting up the window and tables used to cost more than compressing
+    @Benchmark
+    public byte[] compressSmall(Bytes bytes) {
+        byte[] result = Main.compress(smallData, level);
+        bytes.add(smallData.length, result.length);
+        return result;
+    }
+
+    @Benchmark
+    public byte[] compressLongRange(Bytes bytes) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try (DeflateOutputStream out = new DeflateOutputStream(result, level, Archive.DEFAULT_BLOCK_SIZE, false, null,
+                LONG_WINDOW)) {
+            out.write(data);
+        }
+        bytes.add(data.length, result.size());
+        return result.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] decompress(Bytes bytes) throws IOException {
+        byte[] result = Main.decompress(archive);
+        bytes.add(archive.length, result.length);
+        return result;
+    }
+}
@@ -0,0 +1,60 @@
+package deflate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+// Benchmark inputs: the files in examples/ and a few synthetic ones
+class Corpus {
+    public static final String RANDOM = "random"; // 1 MB of random bytes, incompressible
+    public static final String REPETITIVE = "repetitive"; // 1 MB of a repeated sentence
+    public static final String LARGE = "large"; // 16 MB made of the example files, repeated
+
+    private static final String[] EXAMPLES = {"Java.html", "JavaScript.html", "MonteCarlo.html", "RTU.html", "Rainis.html"};
+    private static final int SYNTHETIC_SIZE = 1 << 20;
+    private static final int LARGE_SIZE = 16 << 20;
+
+    // Loads an example file by name or generates a synthetic input
+    public static byte[] load(String name) throws IOException {
+        switch (name) {
+            case RANDOM:
+                byte[] random = new byte[SYNTHETIC_SIZE];
+                new Random(42).nextBytes(random);
+                return random;
+
+            case REPETITIVE:
+                byte[] sentence = "The quick brown fox jumps over the lazy dog. ".getBytes(StandardCharsets.US_ASCII);
+                byte[] repetitive = new byte[SYNTHETIC_SIZE];
+                for (int i = 0; i < repetitive.length; i++) {
+                    repetitive[i] = sentence[i % sentence.length];
+                }
+                return repetitive;
+
+            case LARGE:
+                ByteArrayOutputStream large = new ByteArrayOutputStream(LARGE_SIZE);
+                while (large.size() < LARGE_SIZE) {
+                    for (String example : EXAMPLES) {
+                        large.write(Files.readAllBytes(examplesDirectory().resolve(example)));
+                    }
+                }
+                return large.toByteArray();
+
+            default:
+                return Files.readAllBytes(examplesDirectory().resolve(name));
+        }
+    }
+
+    // The examples directory, set with -Ddeflate.examples or found from the working directory
+    private static Path examplesDirectory() {
+        String configured = System.getProperty("deflate.examples");
+        if (configured != null) {
+            return Paths.get(configured);
+        }
+        Path local = Paths.get("examples");
+        return Files.isDirectory(local) ? local : Paths.get("..", "examples");
+    }
+}
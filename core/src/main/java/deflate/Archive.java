@@ -0,0 +1,417 @@
+package deflate;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+
+// Archive layout shared by the block codecs: a header (magic, flags, block size, the dictionary ID if a
+// dictionary is used and the window size in the long-range mode), the blocks (uncompressed length,
+// compressed length, data), an empty block as end marker, the stream checksum with FLAG_CHECKSUMS, and
+// the block index
+class Archive {
+    public static final int MAGIC = 0x44464C31; // "DFL1", written at the start of every archive
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 18; // Uncompressed bytes per block
+    public static final int MAX_BLOCK_SIZE = 1 << 26; // Largest block size a reader accepts
+    public static final int FLAG_INDEPENDENT_BLOCKS = 1; // Blocks never refer back into earlier blocks
+    public static final int FLAG_DICTIONARY = 2; // Compressed with a preset dictionary
+    public static final int FLAG_BLOCK_TYPES = 4; // Each block's data starts with its type
+    public static final int FLAG_LONG_WINDOW = 8; // Matches reach back up to the window size in the header
+    public static final int FLAG_CHECKSUMS = 16; // CRC-32C after each block's data and after the end marker
+    public static final int HEADER_SIZE = 9; // Magic, flags and block size
+    public static final int DICTIONARY_ID_SIZE = 4; // Follows the header with FLAG_DICTIONARY
+    public static final int WINDOW_SIZE_SIZE = 4; // Follows the dictionary ID with FLAG_LONG_WINDOW
+    public static final int BLOCK_HEADER_SIZE = 8; // Uncompressed and compressed length of a block
+    public static final int CHECKSUM_SIZE = 4; // Bytes of a CRC-32C
+
+    // Block types, the first byte of each block's data. Types 0 and 1 are reserved and rejected as corrupt.
+    public static final int BLOCK_STORED = 2; // The bytes themselves
+    public static final int BLOCK_LITERALS = 3; // The bytes Huffman coded, without LZ77
+    public static final int BLOCK_TOKENS = 4; // LZ77 tags with literal/length and offset Huffman codes, see TokenCoder
+    public static final int BLOCK_LONG_TOKENS = 5; // LZ77 tags with long-range matches, coded with TokenCoder's long codes
+
+    private final int flags;
+    private final int blockSize;
+    private final int dictionaryId; // Only meaningful with FLAG_DICTIONARY
+    private final int windowSize; // Farthest a match reaches back, LZ77.WINDOW_SIZE without FLAG_LONG_WINDOW
+
+    Archive(int flags, int blockSize) {
+        this(flags, blockSize, 0);
+    }
+
+    Archive(int flags, int blockSize, int dictionaryId) {
+        this(flags, blockSize, dictionaryId, LZ77.WINDOW_SIZE);
+    }
+
+    Archive(int flags, int blockSize, int dictionaryId, int windowSize) {
+        if (blockSize <= 0 || blockSize > MAX_BLOCK_SIZE) {
+            throw new IllegalArgumentException("Block size must be between 1 and " + MAX_BLOCK_SIZE);
+        }
+        if ((flags & FLAG_LONG_WINDOW) == 0 ? windowSize != LZ77.WINDOW_SIZE
+                : windowSize <= LZ77.WINDOW_SIZE || windowSize > LZ77.MAX_LONG_WINDOW) {
+            throw new IllegalArgumentException("Long-range window size must be between " + (LZ77.WINDOW_SIZE + 1)
+                    + " and " + LZ77.MAX_LONG_WINDOW);
+        }
+        if ((flags & FLAG_LONG_WINDOW) != 0 && (flags & FLAG_INDEPENDENT_BLOCKS) != 0) {
+            throw new IllegalArgumentException("Independent blocks can't refer back into a long-range window");
+        }
+        this.flags = flags;
+        this.blockSize = blockSize;
+        this.dictionaryId = dictionaryId;
+        this.windowSize = windowSize;
+    }
+
+    public int getFlags() {
+        return flags;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    public boolean isIndependent() {
+        return (flags & FLAG_INDEPENDENT_BLOCKS) != 0;
+    }
+
+    public boolean isLongRange() {
+        return (flags & FLAG_LONG_WINDOW) != 0;
+    }
+
+    // Whether blocks and the whole stream carry a CRC-32C of their uncompressed bytes
+    public boolean hasChecksums() {
+        return (flags & FLAG_CHECKSUMS) != 0;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    // Size of the buffer holding the history and a block. A long-range window slides only when the next block
+    // doesn't fit behind the data, moving a quarter of the window or a block, whichever is more, at a time.
+    public int getWindowCapacity() {
+        if (!isLongRange()) {
+            return LZ77.WINDOW_SIZE + blockSize;
+        }
+        return windowSize + Math.max(blockSize, windowSize / 4);
+    }
+
+    // Largest compressed length of a block of blockLength bytes: a block is never larger than the stored block,
+    // its bytes after the type byte and followed by the checksum
+    public long getMaxCompressedLength(int blockLength) {
+        return blockLength + 1L + (hasChecksums() ? CHECKSUM_SIZE : 0);
+    }
+
+    // Size a reader's window starts at, which holds the dictionary and a block of the default size. It grows
+    // up to getWindowCapacity() as blocks need it, see growWindow.
+    public int getInitialWindowSize() {
+        return Math.min(getWindowCapacity(), LZ77.WINDOW_SIZE + DEFAULT_BLOCK_SIZE);
+    }
+
+    // Size of the header, where the first block starts
+    public int getHeaderSize() {
+        return HEADER_SIZE + ((flags & FLAG_DICTIONARY) != 0 ? DICTIONARY_ID_SIZE : 0)
+                + (isLongRange() ? WINDOW_SIZE_SIZE : 0);
+    }
+
+    // Checks the dictionary given for decompression, returns null if the archive doesn't use one
+    public Dictionary checkDictionary(Dictionary dictionary) throws IOException {
+        if ((flags & FLAG_DICTIONARY) == 0) {
+            return null;
+        }
+        if (dictionary == null) {
+            throw new IOException("Archive needs dictionary " + Integer.toHexString(dictionaryId));
+        }
+        if (dictionary.getId() != dictionaryId) {
+            throw new IOException("Archive needs dictionary " + Integer.toHexString(dictionaryId)
+                    + ", not " + Integer.toHexString(dictionary.getId()));
+        }
+        return dictionary;
+    }
+
+    // Writes the archive header
+    public void write(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(flags);
+        out.writeInt(blockSize);
+        if ((flags & FLAG_DICTIONARY) != 0) {
+            out.writeInt(dictionaryId);
+        }
+        if (isLongRange()) {
+            out.writeInt(windowSize);
+        }
+    }
+
+    // Reads an archive header
+    public static Archive read(DataInputStream in) throws IOException {
+        try {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a compressed archive");
+            }
+            int flags = in.readUnsignedByte();
+            int blockSize = in.readInt();
+            if (blockSize <= 0 || blockSize > MAX_BLOCK_SIZE) {
+                throw new IOException("Corrupt archive header");
+            }
+            int dictionaryId = (flags & FLAG_DICTIONARY) != 0 ? in.readInt() : 0;
+            int windowSize = (flags & FLAG_LONG_WINDOW) != 0 ? in.readInt() : LZ77.WINDOW_SIZE;
+            if ((flags & FLAG_BLOCK_TYPES) == 0) {
+                throw new IOException("Corrupt archive header");
+            }
+            return new Archive(flags, blockSize, dictionaryId, windowSize);
+        } catch (EOFException e) {
+            throw new IOException("Unexpected end of archive", e);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupt archive header", e);
+        }
+    }
+
+    // Reads the archive header at the start of the file
+    public static Archive read(FileChannel channel) throws IOException {
+        int length = (int) Math.min(channel.size(), HEADER_SIZE + DICTIONARY_ID_SIZE + WINDOW_SIZE_SIZE);
+        return read(new DataInputStream(new ByteArrayInputStream(BlockIndex.readFully(channel, 0, length).array())));
+    }
+
+    // Moves the history of the next block to the front of the window and returns its length. Blocks are
+    // preceded by the end of the data before them, or by the dictionary at the start and in independent blocks.
+    // A long-range window is only moved when the next block doesn't fit, the data before limit is the history
+    // until then.
+    int prepareHistory(byte[] window, int limit, Dictionary dictionary) {
+        if (limit == 0 || isIndependent()) {
+            if (dictionary == null) {
+                return 0;
+            }
+            byte[] content = dictionary.getContent();
+            System.arraycopy(content, 0, window, 0, content.length);
+            return content.length;
+        }
+        if (isLongRange() && getWindowCapacity() - limit >= blockSize) {
+            return limit;
+        }
+        int historyLength = Math.min(limit, windowSize);
+        System.arraycopy(window, limit - historyLength, window, 0, historyLength);
+        return historyLength;
+    }
+
+    // Returns the window if a block of blockLength fits after the history, or else a larger window that starts
+    // with the history. Windows double until they reach getWindowCapacity(), so the memory a reader takes
+    // follows the data it has decoded rather than the window size in a header that may be corrupt.
+    byte[] growWindow(byte[] window, int historyLength, int blockLength) throws IOException {
+        long size = (long) historyLength + blockLength;
+        if (blockLength < 0 || size > getWindowCapacity()) {
+            throw new IOException("Corrupt block data");
+        }
+        if (size <= window.length) {
+            return window;
+        }
+        byte[] grown = new byte[(int) Math.min(getWindowCapacity(), Math.max(size, 2L * window.length))];
+        System.arraycopy(window, 0, grown, 0, historyLength);
+        return grown;
+    }
+
+    // Compresses data[start..end) as one block, the bytes before start are the LZ77 history, including the
+    // dictionary of an archive that has one. Blocks that LZ77 can't shrink are stored, or Huffman coded
+    // without LZ77; see BlockProbe. The data starts with the block type, archives are always written with
+    // FLAG_BLOCK_TYPES. The compressor's match finder, tag buffer and bit buffer are reused. In the long-range
+    // mode every block goes through the compressor's long-range finder, and a block with long-range matches
+    // is always coded.
+    byte[] compressBlock(Compressor context, byte[] data, int start, int end, int level) {
+        int blockLength = end - start;
+        int checksum = hasChecksums() ? context.checksum(data, start, blockLength) : 0;
+        int longMatches = isLongRange() ? context.longRangeFinder().find(data, start, end) : 0;
+        int type = longMatches > 0 ? BLOCK_TOKENS : BlockProbe.probe(data, start, end);
+
+        // Never make a block larger than its bytes, the stored block takes one byte more for the type
+        byte[] typedData = null;
+        if (type == BLOCK_TOKENS) {
+            // The type goes in front of the tokens and the checksum after them, so the coded block is copied
+            // out of the writer only once
+            if (compressTags(context, data, start, end, level, isLongRange()) < blockLength) {
+                BitWriter writer = context.writer;
+                if (hasChecksums()) {
+                    writer.alignToByte();
+                    writer.writeBits(checksum, 32);
+                }
+                typedData = writer.toByteArray();
+            }
+        } else if (type == BLOCK_LITERALS) {
+            long encodeStart = System.nanoTime();
+            byte[] huffmanData = new Huffman().compress(Arrays.copyOfRange(data, start, end));
+            CodecMetrics.recordPhase(CodecMetrics.PHASE_HUFFMAN_ENCODE, System.nanoTime() - encodeStart, blockLength,
+                    huffmanData.length);
+            if (huffmanData.length < blockLength) {
+                typedData = typed(BLOCK_LITERALS, huffmanData, 0, huffmanData.length, checksum);
+            }
+        }
+        if (typedData == null) {
+            typedData = typed(BLOCK_STORED, data, start, blockLength, checksum);
+        }
+        CodecMetrics.recordBlockType(typedData[0]);
+        return typedData;
+    }
+
+    // Adds the checksum at the end of a block's data to the stream checksum, which is the CRC-32C of the
+    // block checksums in order. It covers the whole stream without another pass over the data.
+    static void addBlockChecksum(CRC32C streamChecksum, byte[] compressedData) {
+        streamChecksum.update(compressedData, compressedData.length - CHECKSUM_SIZE, CHECKSUM_SIZE);
+    }
+
+    // Adds a decoded block's checksum to the stream checksum, see addBlockChecksum
+    static void addBlockChecksum(CRC32C streamChecksum, DecodedBlock block) {
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            streamChecksum.update(block.checksum >>> shift);
+        }
+    }
+
+    private static int readChecksum(byte[] data, int offset) {
+        return (data[offset] & 0xFF) << 24 | (data[offset + 1] & 0xFF) << 16 | (data[offset + 2] & 0xFF) << 8
+                | data[offset + 3] & 0xFF;
+    }
+
+    // Compresses the block with LZ77 and codes the tags into the compressor's bit writer, after the block type.
+    // Returns the length of the coded tags in bytes. In the long-range mode the matches the compressor's
+    // long-range finder found in the block are taken as well.
+    private static int compressTags(Compressor context, byte[] data, int start, int end, int level,
+            boolean longRange) {
+        long lz77Start = System.nanoTime();
+        TagBuffer lz77Tags = context.tags;
+        LZ77.encode(data, start, end, level, LZ77.MAX_LENGTH, lz77Tags, context.finder,
+                longRange ? context.longRangeFinder() : null);
+
+        long encodeStart = System.nanoTime();
+        int[] codeLengthCounts = new int[Huffman.MAX_CODE_LENGTH + 1];
+        boolean longCodes = longRange && TokenCoder.needsLongCodes(lz77Tags);
+        BitWriter writer = context.writer;
+        writer.reset();
+        writer.writeBits(longCodes ? BLOCK_LONG_TOKENS : BLOCK_TOKENS, 8);
+        TokenCoder.encode(lz77Tags, writer, codeLengthCounts, longCodes);
+        long encodeEnd = System.nanoTime();
+
+        int blockLength = end - start;
+        int compressedLength = (int) ((writer.getBitCount() + 7) / 8) - 1;
+        CodecMetrics.recordPhase(CodecMetrics.PHASE_LZ77_ENCODE, encodeStart - lz77Start, blockLength, 0);
+        CodecMetrics.recordPhase(CodecMetrics.PHASE_HUFFMAN_ENCODE, encodeEnd - encodeStart, 0, compressedLength);
+        CodecMetrics.recordBlock(blockLength, lz77Tags, lz77Tags.size() * Long.BYTES, codeLengthCounts,
+                compressedLength);
+        return compressedLength;
+    }
+
+    // Block data: the type followed by length bytes of the data from the offset, and the checksum if the
+    // archive has checksums
+    private byte[] typed(int type, byte[] data, int offset, int length, int checksum) {
+        byte[] typedData = new byte[length + 1 + (hasChecksums() ? CHECKSUM_SIZE : 0)];
+        typedData[0] = (byte) type;
+        System.arraycopy(data, offset, typedData, 1, length);
+        if (hasChecksums()) {
+            int end = length + 1;
+            typedData[end] = (byte) (checksum >>> 24);
+            typedData[end + 1] = (byte) (checksum >>> 16);
+            typedData[end + 2] = (byte) (checksum >>> 8);
+            typedData[end + 3] = (byte) checksum;
+        }
+        return typedData;
+    }
+
+    // Decodes one block of blockLength bytes. Token blocks are decoded into the decompressor's tag buffer,
+    // which the result refers to until the next block. The coded data ignores the checksum after it, which
+    // replayBlock checks.
+    DecodedBlock decodeBlock(Decompressor context, byte[] compressedData, int blockLength) throws IOException {
+        if (blockLength < 0 || blockLength > blockSize) {
+            throw new IOException("Corrupt block data");
+        }
+        try {
+            int end = compressedData.length - (hasChecksums() ? CHECKSUM_SIZE : 0);
+            if (end < 1) {
+                throw new IOException("Corrupt block data");
+            }
+            DecodedBlock block = decodeData(context, compressedData, compressedData[0], 1, end, blockLength);
+            if (hasChecksums()) {
+                block.checked = true;
+                block.checksum = readChecksum(compressedData, end);
+            }
+            return block;
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IOException("Corrupt block data", e);
+        }
+    }
+
+    // Decodes the block data of the type in compressedData[offset..end)
+    private DecodedBlock decodeData(Decompressor context, byte[] compressedData, int type, int offset, int end,
+                                    int blockLength) throws IOException {
+        if (type == BLOCK_STORED) {
+            return new DecodedBlock(null, Arrays.copyOfRange(compressedData, offset, end));
+        }
+        if (type == BLOCK_LITERALS) {
+            long huffmanStart = System.nanoTime();
+            byte[] bytes = new Huffman().decompress(compressedData, offset);
+            CodecMetrics.recordPhase(CodecMetrics.PHASE_HUFFMAN_DECODE, System.nanoTime() - huffmanStart,
+                    compressedData.length, bytes.length);
+            return new DecodedBlock(null, bytes);
+        }
+        if (type == BLOCK_TOKENS || (type == BLOCK_LONG_TOKENS && isLongRange())) {
+            long huffmanStart = System.nanoTime();
+            TokenCoder.decode(compressedData, offset, blockLength, context, type == BLOCK_LONG_TOKENS);
+            CodecMetrics.recordPhase(CodecMetrics.PHASE_HUFFMAN_DECODE, System.nanoTime() - huffmanStart,
+                    compressedData.length, 0);
+            return new DecodedBlock(context.tags, null);
+        }
+        throw new IOException("Corrupt block data");
+    }
+
+    // Replays a decoded block into the window after the history, returns the end of the block. The block's
+    // checksum is verified with the decompressor's CRC.
+    static int replayBlock(Decompressor context, DecodedBlock block, byte[] window, int historyLength,
+                           int blockLength) throws IOException {
+        int limit = historyLength + blockLength;
+        if (blockLength < 0 || limit > window.length) {
+            throw new IOException("Corrupt block data");
+        }
+        if (block.bytes != null) {
+            if (block.bytes.length != blockLength) {
+                throw new IOException("Corrupt block data");
+            }
+            System.arraycopy(block.bytes, 0, window, historyLength, blockLength);
+            verifyChecksum(context, block, window, historyLength, blockLength);
+            return limit;
+        }
+
+        int end;
+        long replayStart = System.nanoTime();
+        try {
+            end = LZ77.decompressFromTags(block.tags, window, historyLength, limit);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IOException("Corrupt block data", e);
+        }
+        CodecMetrics.recordPhase(CodecMetrics.PHASE_LZ77_DECODE, System.nanoTime() - replayStart, 0,
+                end - historyLength);
+        if (end != limit) {
+            throw new IOException("Corrupt block data");
+        }
+        verifyChecksum(context, block, window, historyLength, blockLength);
+        return end;
+    }
+
+    // Compares the replayed bytes with the block's checksum, if it has one
+    private static void verifyChecksum(Decompressor context, DecodedBlock block, byte[] window, int historyLength,
+                                       int blockLength) throws IOException {
+        if (block.checked && context.checksum(window, historyLength, blockLength) != block.checksum) {
+            throw new IOException("Block checksum mismatch");
+        }
+    }
+
+    // A decoded block: the LZ77 tags to replay, or the bytes of a block that was coded without LZ77
+    static class DecodedBlock {
+        final TagBuffer tags;
+        final byte[] bytes;
+        boolean checked; // Whether the block has a checksum
+        int checksum; // CRC-32C of the block's bytes
+
+        DecodedBlock(TagBuffer tags, byte[] bytes) {
+            this.tags = tags;
+            this.bytes = bytes;
+        }
+    }
+}
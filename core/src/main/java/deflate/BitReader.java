@@ -0,0 +1,58 @@
+package deflate;
+
+// Reads a bit stream (most significant bit first) through a 64-bit accumulator
+class BitReader {
+    private final byte[] data; // Source of the bit stream
+    private final int limit; // End of the bit stream in the source
+    private int position; // Next byte to load into the accumulator
+    private long bitBuffer; // Buffered bits, aligned to the most significant bit
+    private int bitCount; // Number of valid bits in the buffer
+
+    BitReader(byte[] data, int offset, int limit) {
+        this.data = data;
+        this.position = offset;
+        this.limit = limit;
+    }
+
+    // Returns the next count bits (1 to 56) without consuming them, reading zeros past the end
+    public int peek(int count) {
+        if (bitCount < count) {
+            refill();
+        }
+        return (int) (bitBuffer >>> (64 - count));
+    }
+
+    // Skips count bits that were already peeked
+    public void consume(int count) {
+        bitBuffer <<= count;
+        bitCount -= count;
+    }
+
+    // Reads count bits (0 to 56) as an unsigned number
+    public long readBits(int count) {
+        if (count == 0) {
+            return 0; // A 64-bit shift would leave the buffer unchanged
+        }
+        if (bitCount < count) {
+            refill();
+        }
+        long value = bitBuffer >>> (64 - count);
+        consume(count);
+        return value;
+    }
+
+    // Reads a single bit
+    public boolean readBit() {
+        return readBits(1) != 0;
+    }
+
+    // Loads whole bytes into the accumulator until at least 57 bits are buffered
+    private void refill() {
+        while (bitCount <= 56) {
+            long b = position < limit ? data[position] & 0xFF : 0; // Pad with zeros past the end
+            position++;
+            bitBuffer |= b << (56 - bitCount);
+            bitCount += 8;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package deflate;
+
+import java.util.Arrays;
+
+// Writes a bit stream (most significant bit first) through a 64-bit accumulator
+class BitWriter {
+    private byte[] buffer; // Bytes written so far
+    private int position; // Number of complete bytes in the buffer
+    private long bitBuffer; // Pending bits, aligned to the least significant bit
+    private int bitCount; // Number of pending bits
+
+    BitWriter(int capacity) {
+        buffer = new byte[Math.max(capacity, 16)];
+    }
+
+    // Appends the low count bits (0 to 32) of the value
+    public void writeBits(long value, int count) {
+        bitBuffer = (bitBuffer << count) | (value & ((1L << count) - 1));
+        bitCount += count;
+        if (bitCount >= 32) {
+            ensureCapacity(8);
+            while (bitCount >= 8) {
+                bitCount -= 8;
+                buffer[position++] = (byte) (bitBuffer >>> bitCount); // Move complete bytes to the buffer
+            }
+        }
+    }
+
+    // Pads the last byte with zero bits, so that the next bits start a new byte
+    public void alignToByte() {
+        writeBits(0, -bitCount & 7);
+    }
+
+    // Discards the written bits, keeping the buffer
+    public void reset() {
+        position = 0;
+        bitBuffer = 0;
+        bitCount = 0;
+    }
+
+    // Returns the number of bits written so far
+    public long getBitCount() {
+        return (long) position * 8 + bitCount;
+    }
+
+    // Returns the written bytes, padding the last byte with zero bits
+    public byte[] toByteArray() {
+        ensureCapacity(8);
+        int length = position;
+        for (int pending = bitCount; pending > 0; pending -= 8) {
+            int shift = pending - 8;
+            buffer[length++] = (byte) (shift >= 0 ? bitBuffer >>> shift : bitBuffer << -shift);
+        }
+        return Arrays.copyOf(buffer, length);
+    }
+
+    private void ensureCapacity(int extra) {
+        if (position + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + extra));
+        }
+    }
+}
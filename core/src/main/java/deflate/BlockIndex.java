@@ -0,0 +1,152 @@
+package deflate;
+
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+// Uncompressed and compressed length of every block, stored at the end of the archive.
+// The offsets of the blocks are summed up from the lengths as they are added.
+class BlockIndex {
+    public static final int INDEX_MAGIC = 0x44464C58; // "DFLX", the last four bytes of an indexed archive
+    public static final int FOOTER_SIZE = 8; // Block count and index magic
+
+    private int[] rawLengths = new int[16];
+    private int[] compressedLengths = new int[16];
+    private long[] rawOffsets = new long[16]; // Offset of each block in the uncompressed data
+    private long[] compressedOffsets = new long[16]; // Offset of each block header in the archive
+    private long rawLength = 0; // Uncompressed length of all blocks
+    private long compressedLength; // Archive offset after the last block
+    private int size = 0;
+
+    public BlockIndex() {
+        this(Archive.HEADER_SIZE);
+    }
+
+    // Index of an archive whose first block starts at headerSize
+    public BlockIndex(int headerSize) {
+        this.compressedLength = headerSize;
+    }
+
+    // Records the next block
+    public void add(int rawLength, int compressedLength) {
+        if (size == rawLengths.length) {
+            rawLengths = Arrays.copyOf(rawLengths, size * 2);
+            compressedLengths = Arrays.copyOf(compressedLengths, size * 2);
+            rawOffsets = Arrays.copyOf(rawOffsets, size * 2);
+            compressedOffsets = Arrays.copyOf(compressedOffsets, size * 2);
+        }
+        rawLengths[size] = rawLength;
+        compressedLengths[size] = compressedLength;
+        rawOffsets[size] = this.rawLength;
+        compressedOffsets[size] = this.compressedLength;
+        this.rawLength += rawLength;
+        this.compressedLength += Archive.BLOCK_HEADER_SIZE + compressedLength;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getRawLength(int block) {
+        return rawLengths[block];
+    }
+
+    public int getCompressedLength(int block) {
+        return compressedLengths[block];
+    }
+
+    public long getRawOffset(int block) {
+        return rawOffsets[block];
+    }
+
+    // Archive offset of the block's compressed data, after its block header
+    public long getDataOffset(int block) {
+        return compressedOffsets[block] + Archive.BLOCK_HEADER_SIZE;
+    }
+
+    // Archive offset after the last block, where the end marker is
+    public long getEndOffset() {
+        return compressedLength;
+    }
+
+    // Uncompressed length of the whole archive
+    public long getRawLength() {
+        return rawLength;
+    }
+
+    // Finds the block holding the uncompressed offset, which must be below getRawLength()
+    public int findBlock(long rawOffset) {
+        int low = 0;
+        int high = size - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (rawOffsets[middle] <= rawOffset) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    // Writes the index followed by the footer
+    public void write(DataOutputStream out) throws IOException {
+        for (int i = 0; i < size; i++) {
+            out.writeInt(rawLengths[i]);
+            out.writeInt(compressedLengths[i]);
+        }
+        out.writeInt(size);
+        out.writeInt(INDEX_MAGIC);
+    }
+
+    // Reads the index from the end of an archive, returns null if the archive has none
+    public static BlockIndex read(FileChannel channel, Archive archive) throws IOException {
+        return read(channel, archive, channel.size());
+    }
+
+    // Reads the index of an archive that ends at fileSize, with other data after it
+    public static BlockIndex read(FileChannel channel, Archive archive, long fileSize) throws IOException {
+        if (fileSize < Archive.HEADER_SIZE + 4 + FOOTER_SIZE) {
+            return null;
+        }
+
+        ByteBuffer footer = readFully(channel, fileSize - FOOTER_SIZE, FOOTER_SIZE);
+        int count = footer.getInt();
+        if (footer.getInt() != INDEX_MAGIC || count < 0 || (long) count * 8 > fileSize - FOOTER_SIZE) {
+            return null;
+        }
+
+        ByteBuffer entries = readFully(channel, fileSize - FOOTER_SIZE - (long) count * 8, count * 8);
+        BlockIndex index = new BlockIndex(archive.getHeaderSize());
+        for (int i = 0; i < count; i++) {
+            int rawLength = entries.getInt();
+            int compressedLength = entries.getInt();
+            if (rawLength <= 0 || rawLength > archive.getBlockSize() || compressedLength < 0
+                    || compressedLength > archive.getMaxCompressedLength(rawLength)) {
+                throw new IOException("Corrupt block index");
+            }
+            index.add(rawLength, compressedLength);
+        }
+        long checksumSize = archive.hasChecksums() ? Archive.CHECKSUM_SIZE : 0;
+        if (index.compressedLength + 4 + checksumSize + (long) count * 8 + FOOTER_SIZE != fileSize) {
+            throw new IOException("Corrupt block index"); // The blocks don't add up to the archive
+        }
+        return index;
+    }
+
+    // Reads length bytes at the position without moving the channel, safe to call from several threads
+    static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of archive");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
@@ -0,0 +1,63 @@
+package deflate;
+
+import java.util.Arrays;
+
+// Guesses from a sample of a block whether LZ77 will pay off. The sample is a few chunks spread over
+// the block; its byte entropy and the share of positions that repeat 4 bytes seen earlier in the same
+// chunk decide between full compression, Huffman coding of the bytes alone, and storing the bytes.
+class BlockProbe {
+    public static final int MIN_BLOCK_LENGTH = 4096; // Smaller blocks are always compressed fully
+    private static final int CHUNKS = 8;
+    private static final int CHUNK_LENGTH = 1024;
+    private static final int HASH_BITS = 10;
+    private static final double MIN_MATCH_RATE = 0.05; // Below this LZ77 finds too little to be worth it
+    private static final double MAX_LITERAL_ENTROPY = 7.5; // Bits per byte above which Huffman can't gain
+
+    // Returns the block type to use for data[start..end): BLOCK_TOKENS, BLOCK_LITERALS or BLOCK_STORED
+    public static int probe(byte[] data, int start, int end) {
+        int length = end - start;
+        if (length < MIN_BLOCK_LENGTH) {
+            return Archive.BLOCK_TOKENS;
+        }
+
+        int[] frequencies = new int[256];
+        int[] lastPosition = new int[1 << HASH_BITS];
+        int sampled = 0;
+        int matched = 0;
+        int chunkLength = Math.min(CHUNK_LENGTH, length / CHUNKS);
+        for (int chunk = 0; chunk < CHUNKS; chunk++) {
+            int chunkStart = start + (int) ((long) (length - chunkLength) * chunk / (CHUNKS - 1));
+            int chunkEnd = chunkStart + chunkLength;
+            Arrays.fill(lastPosition, -1);
+            Huffman.countBytes(data, chunkStart, chunkEnd, frequencies);
+            for (int i = chunkStart; i + 4 <= chunkEnd; i++) {
+                int quad = (data[i] & 0xFF) << 24 | (data[i + 1] & 0xFF) << 16 | (data[i + 2] & 0xFF) << 8 | (data[i + 3] & 0xFF);
+                int hash = (quad * 0x9E3779B1) >>> (32 - HASH_BITS);
+                int previous = lastPosition[hash];
+                if (previous >= 0 && data[previous] == data[i] && data[previous + 1] == data[i + 1]
+                        && data[previous + 2] == data[i + 2] && data[previous + 3] == data[i + 3]) {
+                    matched++;
+                }
+                lastPosition[hash] = i;
+                sampled++;
+            }
+        }
+
+        if ((double) matched / sampled >= MIN_MATCH_RATE) {
+            return Archive.BLOCK_TOKENS;
+        }
+        return entropy(frequencies, chunkLength * CHUNKS) > MAX_LITERAL_ENTROPY ? Archive.BLOCK_STORED : Archive.BLOCK_LITERALS;
+    }
+
+    // Order-0 entropy of the byte frequencies in bits per byte
+    private static double entropy(int[] frequencies, int total) {
+        double entropy = 0;
+        for (int frequency : frequencies) {
+            if (frequency > 0) {
+                double p = (double) frequency / total;
+                entropy -= p * Math.log(p);
+            }
+        }
+        return entropy / Math.log(2);
+    }
+}
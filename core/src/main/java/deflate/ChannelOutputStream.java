@@ -0,0 +1,91 @@
+package deflate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+// Output stream over a channel: small writes such as block headers are buffered, and large writes
+// go out together with the buffered bytes in one gathering write, without copying the data
+class ChannelOutputStream extends OutputStream {
+    private static final int BUFFER_SIZE = 8192;
+
+    private final GatheringByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE); // Bytes not yet written
+    private boolean closed = false;
+
+    public ChannelOutputStream(GatheringByteChannel channel) {
+        this.channel = channel;
+    }
+
+    // Creates or truncates the file
+    public ChannelOutputStream(Path path) throws IOException {
+        this(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE));
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        if (!buffer.hasRemaining()) {
+            flushBuffer();
+        }
+        buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+        ensureOpen();
+        if (len < buffer.remaining()) {
+            buffer.put(b, off, len);
+            return;
+        }
+
+        // Write the buffered bytes and the data in one call
+        buffer.flip();
+        ByteBuffer data = ByteBuffer.wrap(b, off, len);
+        ByteBuffer[] buffers = {buffer, data};
+        while (data.hasRemaining()) {
+            channel.write(buffers);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        flushBuffer();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            flushBuffer();
+        } finally {
+            closed = true;
+            channel.close();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package deflate;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+// Flight Recorder events emitted by CodecMetrics, enabled with -XX:StartFlightRecording
+class CodecEvents {
+    @Name("deflate.Phase")
+    @Label("Codec Phase")
+    @Category("Deflate")
+    @Description("One phase of compressing or decompressing a block")
+    static class PhaseEvent extends Event {
+        @Label("Phase")
+        String phase;
+
+        @Label("Phase Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long phaseTime;
+
+        @Label("Bytes In")
+        @DataAmount
+        long bytesIn;
+
+        @Label("Bytes Out")
+        @DataAmount
+        long bytesOut;
+    }
+
+    @Name("deflate.BlockTags")
+    @Label("Block Tags")
+    @Category("Deflate")
+    @Description("LZ77 output of one compressed block")
+    static class BlockTagsEvent extends Event {
+        @Label("Block Size")
+        @DataAmount
+        long blockBytes;
+
+        @Label("Tags")
+        long tags;
+
+        @Label("Literals")
+        long literals;
+
+        @Label("Matched Bytes")
+        @DataAmount
+        long matchedBytes;
+    }
+}
@@ -0,0 +1,291 @@
+package deflate;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import jdk.jfr.FlightRecorder;
+
+// Process-wide counters for the block codec: time and bytes per phase, LZ77 tag statistics, Huffman
+// code lengths and peak buffer sizes. Blocks are counted once each with striped adders, so the metrics
+// can stay on; -Ddeflate.metrics=false turns them off. Every phase and block is also a JFR event once a
+// recording has been started. Starting the platform MBean server costs more than a small compression
+// run, so the MXBean is only registered with -Ddeflate.metrics.jmx=true or when a JMX agent is
+// configured.
+class CodecMetrics implements CodecMetricsMXBean {
+    public static final int PHASE_LZ77_ENCODE = 0; // LZ77.encode
+    public static final int PHASE_HUFFMAN_ENCODE = 1; // TokenCoder.encode or Huffman.compress, building the codes too
+    public static final int PHASE_HUFFMAN_DECODE = 2; // TokenCoder.decode or Huffman.decompress
+    public static final int PHASE_LZ77_DECODE = 3; // LZ77.decompressFromTags
+    private static final String[] PHASE_NAMES = {"lz77Encode", "huffmanEncode", "huffmanDecode", "lz77Decode"};
+    private static final int HISTOGRAM_BUCKETS = 32; // One per power of two
+    private static final String[] BLOCK_TYPE_NAMES = {"stored", "literals", "tokens", "longTokens"}; // From BLOCK_STORED
+
+    public static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("deflate.metrics", "true"));
+    private static final CodecMetrics INSTANCE = new CodecMetrics();
+
+    private final LongAdder[] phaseNanos = adders(PHASE_NAMES.length);
+    private final LongAdder[] phaseCalls = adders(PHASE_NAMES.length);
+    private final LongAdder[] phaseBytesIn = adders(PHASE_NAMES.length);
+    private final LongAdder[] phaseBytesOut = adders(PHASE_NAMES.length);
+    private final LongAdder[] blockTypes = adders(BLOCK_TYPE_NAMES.length);
+    private final LongAdder tags = new LongAdder();
+    private final LongAdder literals = new LongAdder();
+    private final LongAdder[] matchLengths = adders(HISTOGRAM_BUCKETS);
+    private final LongAdder[] matchOffsets = adders(HISTOGRAM_BUCKETS);
+    private final LongAdder[] codeLengths = adders(Huffman.MAX_CODE_LENGTH + 1);
+    private final LongAccumulator peakBlockBytes = new LongAccumulator(Math::max, 0);
+    private final LongAccumulator peakTagBytes = new LongAccumulator(Math::max, 0);
+    private final LongAccumulator peakCompressedBytes = new LongAccumulator(Math::max, 0);
+
+    static {
+        if (ENABLED && (Boolean.getBoolean("deflate.metrics.jmx")
+                || System.getProperty("com.sun.management.jmxremote") != null
+                || System.getProperty("com.sun.management.jmxremote.port") != null)) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE,
+                        new ObjectName("deflate:type=CodecMetrics"));
+            } catch (JMException | SecurityException e) {
+                // The counters still work without JMX
+            }
+        }
+    }
+
+    private CodecMetrics() {
+    }
+
+    public static CodecMetrics get() {
+        return INSTANCE;
+    }
+
+    // Records one run of a phase; a side that is a tag list counts as 0 bytes, tags are counted by recordBlock
+    static void recordPhase(int phase, long nanos, long bytesIn, long bytesOut) {
+        if (!ENABLED) {
+            return;
+        }
+        INSTANCE.phaseNanos[phase].add(nanos);
+        INSTANCE.phaseCalls[phase].increment();
+        INSTANCE.phaseBytesIn[phase].add(bytesIn);
+        INSTANCE.phaseBytesOut[phase].add(bytesOut);
+
+        if (FlightRecorder.isInitialized()) { // Loading the event classes is slow, skip it until JFR runs
+            CodecEvents.PhaseEvent event = new CodecEvents.PhaseEvent();
+            event.phase = PHASE_NAMES[phase];
+            event.phaseTime = nanos;
+            event.bytesIn = bytesIn;
+            event.bytesOut = bytesOut;
+            event.commit(); // Does nothing unless the event is enabled in the recording
+        }
+    }
+
+    // Counts a compressed block of the type, one of the Archive.BLOCK_ constants
+    static void recordBlockType(int type) {
+        if (ENABLED) {
+            INSTANCE.blockTypes[type - Archive.BLOCK_STORED].increment();
+        }
+    }
+
+    // Records the statistics of a compressed block: its tags, the number of Huffman codes of each length
+    // and its buffer sizes
+    static void recordBlock(int blockBytes, TagBuffer blockTags, int tagBytes, int[] codeLengthCounts,
+                            int compressedBytes) {
+        if (!ENABLED) {
+            return;
+        }
+
+        // Count locally first so the shared adders are touched once per bucket, not once per tag
+        int[] lengthCounts = new int[HISTOGRAM_BUCKETS];
+        int[] offsetCounts = new int[HISTOGRAM_BUCKETS];
+        int literalCount = 0;
+        for (int i = 0; i < blockTags.size(); i++) {
+            if (blockTags.isLiteral(i)) {
+                literalCount++;
+            } else {
+                lengthCounts[bucket(blockTags.getLength(i))]++;
+                offsetCounts[bucket(blockTags.getOffset(i))]++;
+            }
+        }
+        add(INSTANCE.matchLengths, lengthCounts);
+        add(INSTANCE.matchOffsets, offsetCounts);
+        INSTANCE.tags.add(blockTags.size());
+        INSTANCE.literals.add(literalCount);
+
+        add(INSTANCE.codeLengths, codeLengthCounts);
+
+        INSTANCE.peakBlockBytes.accumulate(blockBytes);
+        INSTANCE.peakTagBytes.accumulate(tagBytes);
+        INSTANCE.peakCompressedBytes.accumulate(compressedBytes);
+
+        if (FlightRecorder.isInitialized()) {
+            CodecEvents.BlockTagsEvent event = new CodecEvents.BlockTagsEvent();
+            event.blockBytes = blockBytes;
+            event.tags = blockTags.size();
+            event.literals = literalCount;
+            event.matchedBytes = blockBytes - literalCount;
+            event.commit();
+        }
+    }
+
+    @Override
+    public Map<String, Long> getPhaseNanos() {
+        return byPhase(phaseNanos);
+    }
+
+    @Override
+    public Map<String, Long> getPhaseCalls() {
+        return byPhase(phaseCalls);
+    }
+
+    @Override
+    public Map<String, Long> getPhaseBytesIn() {
+        return byPhase(phaseBytesIn);
+    }
+
+    @Override
+    public Map<String, Long> getPhaseBytesOut() {
+        return byPhase(phaseBytesOut);
+    }
+
+    @Override
+    public Map<String, Long> getBlockTypeCounts() {
+        Map<String, Long> values = new LinkedHashMap<>();
+        for (int type = 0; type < BLOCK_TYPE_NAMES.length; type++) {
+            values.put(BLOCK_TYPE_NAMES[type], blockTypes[type].sum());
+        }
+        return values;
+    }
+
+    @Override
+    public long getTagCount() {
+        return tags.sum();
+    }
+
+    @Override
+    public long getLiteralCount() {
+        return literals.sum();
+    }
+
+    @Override
+    public double getLiteralRatio() {
+        long tagCount = tags.sum();
+        return tagCount == 0 ? 0 : (double) literals.sum() / tagCount;
+    }
+
+    @Override
+    public long[] getMatchLengthHistogram() {
+        return sums(matchLengths);
+    }
+
+    @Override
+    public long[] getMatchOffsetHistogram() {
+        return sums(matchOffsets);
+    }
+
+    @Override
+    public long[] getCodeLengthHistogram() {
+        return sums(codeLengths);
+    }
+
+    @Override
+    public long getPeakBlockBytes() {
+        return peakBlockBytes.get();
+    }
+
+    @Override
+    public long getPeakTagBytes() {
+        return peakTagBytes.get();
+    }
+
+    @Override
+    public long getPeakCompressedBytes() {
+        return peakCompressedBytes.get();
+    }
+
+    @Override
+    public void reset() {
+        for (LongAdder[] adders : List.of(phaseNanos, phaseCalls, phaseBytesIn, phaseBytesOut, blockTypes, matchLengths,
+                matchOffsets, codeLengths)) {
+            for (LongAdder adder : adders) {
+                adder.reset();
+            }
+        }
+        tags.reset();
+        literals.reset();
+        peakBlockBytes.reset();
+        peakTagBytes.reset();
+        peakCompressedBytes.reset();
+    }
+
+    // Human-readable summary of all counters
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        for (int phase = 0; phase < PHASE_NAMES.length; phase++) {
+            long calls = phaseCalls[phase].sum();
+            if (calls > 0) {
+                report.append(String.format("%-14s %8d calls %10.1f ms %12d -> %12d bytes%n", PHASE_NAMES[phase],
+                        calls, phaseNanos[phase].sum() / 1e6, phaseBytesIn[phase].sum(), phaseBytesOut[phase].sum()));
+            }
+        }
+        report.append("blocks ").append(getBlockTypeCounts()).append(System.lineSeparator());
+        report.append(String.format("tags %d, literals %.1f %%%n", getTagCount(), 100 * getLiteralRatio()));
+        report.append("match lengths (log2)  ").append(histogram(getMatchLengthHistogram())).append(System.lineSeparator());
+        report.append("match offsets (log2)  ").append(histogram(getMatchOffsetHistogram())).append(System.lineSeparator());
+        report.append("code lengths          ").append(histogram(getCodeLengthHistogram())).append(System.lineSeparator());
+        report.append(String.format("peak block %d, tags %d, compressed %d bytes", getPeakBlockBytes(),
+                getPeakTagBytes(), getPeakCompressedBytes()));
+        return report.toString();
+    }
+
+    // Histogram bucket of a positive value: the position of its highest set bit
+    private static int bucket(int value) {
+        return 31 - Integer.numberOfLeadingZeros(Math.max(value, 1));
+    }
+
+    private static void add(LongAdder[] adders, int[] counts) {
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0) {
+                adders[i].add(counts[i]);
+            }
+        }
+    }
+
+    private static LongAdder[] adders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    private static long[] sums(LongAdder[] adders) {
+        long[] sums = new long[adders.length];
+        for (int i = 0; i < adders.length; i++) {
+            sums[i] = adders[i].sum();
+        }
+        return sums;
+    }
+
+    private static Map<String, Long> byPhase(LongAdder[] adders) {
+        Map<String, Long> values = new LinkedHashMap<>();
+        for (int phase = 0; phase < PHASE_NAMES.length; phase++) {
+            values.put(PHASE_NAMES[phase], adders[phase].sum());
+        }
+        return values;
+    }
+
+    // Histogram as "bucket:count" pairs, skipping empty buckets
+    private static String histogram(long[] counts) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0) {
+                text.append(text.length() == 0 ? "" : " ").append(i).append(':').append(counts[i]);
+            }
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,42 @@
+package deflate;
+
+import java.util.Map;
+
+// Management interface of CodecMetrics, registered as deflate:type=CodecMetrics
+public interface CodecMetricsMXBean {
+    // Time, calls and bytes per phase, keyed by phase name. The LZ77 phases turn bytes into tags or back,
+    // tags count as 0 bytes.
+    Map<String, Long> getPhaseNanos();
+
+    Map<String, Long> getPhaseCalls();
+
+    Map<String, Long> getPhaseBytesIn();
+
+    Map<String, Long> getPhaseBytesOut();
+
+    // Compressed blocks per block type: stored, literals, tokens and longTokens
+    Map<String, Long> getBlockTypeCounts();
+
+    long getTagCount();
+
+    long getLiteralCount();
+
+    double getLiteralRatio();
+
+    // Bucket i counts the match lengths and offsets in [2^i, 2^(i+1))
+    long[] getMatchLengthHistogram();
+
+    long[] getMatchOffsetHistogram();
+
+    // Entry i counts the literal/length and offset symbols that got an i-bit Huffman code, summed over the
+    // codes of all token blocks
+    long[] getCodeLengthHistogram();
+
+    long getPeakBlockBytes();
+
+    long getPeakTagBytes();
+
+    long getPeakCompressedBytes();
+
+    void reset();
+}
@@ -0,0 +1,449 @@
+package deflate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+// Non-interactive command line, used when Main is started with arguments. Files are compressed or
+// decompressed concurrently on a fixed pool of threads and a summary is printed at the end.
+class CommandLine {
+    public static final String ARCHIVE_SUFFIX = ".dfl"; // Appended to compressed file names
+    private static final String DECOMPRESSED_SUFFIX = ".out"; // For archives without ARCHIVE_SUFFIX
+    private static final int MIN_LONG_WINDOW_LOG = 16; // Smallest window of -L, the next power of two above LZ77.WINDOW_SIZE
+    private static final int MAX_LONG_WINDOW_LOG = 28; // LZ77.MAX_LONG_WINDOW
+
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "usage: deflate comp [-l level] [-L log] [-t threads] [-r] [-m] [-D dictionary] [-o dir] <file or directory>...",
+            "       deflate decomp [-t threads] [-r] [-m] [-D dictionary] [-o dir] <archive or directory>...",
+            "       deflate train [-s size] [-r] -o dictionary <sample file or directory>...",
+            "       deflate solid [-l level] [-L log] [-r] [-D dictionary] -o archive <file or directory>...",
+            "       deflate extract [-D dictionary] [-o dir] <solid archive> [name]...",
+            "       deflate list [-D dictionary] <solid archive>",
+            "       deflate equal <file> <file>",
+            "       deflate size <file>...",
+            "  -l level    compression level " + LZ77.MIN_LEVEL + "-" + LZ77.MAX_LEVEL + " (default " + LZ77.DEFAULT_LEVEL + ")",
+            "  -L log      long-range matching with a window of 2^log bytes (" + MIN_LONG_WINDOW_LOG + "-"
+                    + MAX_LONG_WINDOW_LOG + ")",
+            "  -t threads  number of files processed at once (default: number of processors)",
+            "  -r          process directories recursively",
+            "  -m          print the codec metrics: time per phase, tag statistics and buffer sizes",
+            "  -D dict     compress with a dictionary made by train, or decompress an archive made with it",
+            "  -s size     dictionary size in bytes (default and maximum " + Dictionary.MAX_SIZE + ")",
+            "  -o dir      write the results to dir, keeping the layout below the given directories;",
+            "              for train and solid, the file to write");
+
+    private String command;
+    private int level = LZ77.DEFAULT_LEVEL;
+    private int windowSize = LZ77.WINDOW_SIZE; // Above LZ77.WINDOW_SIZE with -L
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private boolean recursive = false;
+    private boolean metrics = false;
+    private Path outputDirectory; // Null to write each result next to its source
+    private Path dictionaryPath; // Dictionary to use, or null
+    private int dictionarySize = Dictionary.MAX_SIZE; // Size of a trained dictionary
+    private Dictionary dictionary;
+    private final List<Path> paths = new ArrayList<>();
+
+    // A file to process and the file its result goes to
+    private static class Job {
+        final Path source;
+        final Path target;
+
+        Job(Path source, Path target) {
+            this.source = source;
+            this.target = target;
+        }
+    }
+
+    // Runs the command, returns the exit status: 0 on success, 1 if a file failed or differs, 2 on bad usage
+    public static int run(String[] args) {
+        CommandLine commandLine = new CommandLine();
+        try {
+            commandLine.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            return 2;
+        }
+
+        switch (commandLine.command) {
+            case "comp":
+                return commandLine.process(true);
+            case "decomp":
+                return commandLine.process(false);
+            case "equal":
+                boolean equal = Main.equal(commandLine.paths.get(0).toString(), commandLine.paths.get(1).toString());
+                System.out.println(equal);
+                return equal ? 0 : 1;
+            case "size":
+                return commandLine.size();
+            case "train":
+                return commandLine.train();
+            case "solid":
+                return commandLine.solid();
+            case "extract":
+                return commandLine.extract();
+            case "list":
+                return commandLine.list();
+            default:
+                System.out.println(USAGE);
+                return 0;
+        }
+    }
+
+    private void parse(String[] args) {
+        command = args[0];
+        if (!List.of("comp", "decomp", "train", "solid", "extract", "list", "equal", "size", "help", "-h",
+                "--help").contains(command)) {
+            throw new IllegalArgumentException("Unknown command: " + command);
+        }
+
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "-l":
+                    level = parseNumber(args, ++i, "-l");
+                    if (level < LZ77.MIN_LEVEL || level > LZ77.MAX_LEVEL) {
+                        throw new IllegalArgumentException("Compression level must be between " + LZ77.MIN_LEVEL + " and " + LZ77.MAX_LEVEL);
+                    }
+                    break;
+                case "-L":
+                    int windowLog = parseNumber(args, ++i, "-L");
+                    if (windowLog < MIN_LONG_WINDOW_LOG || windowLog > MAX_LONG_WINDOW_LOG) {
+                        throw new IllegalArgumentException("Window log must be between " + MIN_LONG_WINDOW_LOG + " and " + MAX_LONG_WINDOW_LOG);
+                    }
+                    windowSize = 1 << windowLog;
+                    break;
+                case "-t":
+                    threads = parseNumber(args, ++i, "-t");
+                    if (threads < 1) {
+                        throw new IllegalArgumentException("Thread count must be positive");
+                    }
+                    break;
+                case "-r":
+                    recursive = true;
+                    break;
+                case "-m":
+                    metrics = true;
+                    break;
+                case "-o":
+                    if (++i == args.length) {
+                        throw new IllegalArgumentException("Missing directory after -o");
+                    }
+                    outputDirectory = Paths.get(args[i]);
+                    break;
+                case "-D":
+                    if (++i == args.length) {
+                        throw new IllegalArgumentException("Missing dictionary after -D");
+                    }
+                    dictionaryPath = Paths.get(args[i]);
+                    break;
+                case "-s":
+                    dictionarySize = parseNumber(args, ++i, "-s");
+                    if (dictionarySize < 1 || dictionarySize > Dictionary.MAX_SIZE) {
+                        throw new IllegalArgumentException("Dictionary size must be between 1 and " + Dictionary.MAX_SIZE);
+                    }
+                    break;
+                default:
+                    if (args[i].startsWith("-")) {
+                        throw new IllegalArgumentException("Unknown option: " + args[i]);
+                    }
+                    paths.add(Paths.get(args[i]));
+                    break;
+            }
+        }
+
+        if (command.equals("equal") && paths.size() != 2) {
+            throw new IllegalArgumentException("equal needs two files");
+        }
+        if (List.of("comp", "decomp", "train", "solid", "extract", "size").contains(command) && paths.isEmpty()) {
+            throw new IllegalArgumentException("No files given");
+        }
+        if (command.equals("list") && paths.size() != 1) {
+            throw new IllegalArgumentException("list needs one archive");
+        }
+        if (command.equals("train") && outputDirectory == null) {
+            throw new IllegalArgumentException("train needs the dictionary file to write (-o)");
+        }
+        if (command.equals("solid") && outputDirectory == null) {
+            throw new IllegalArgumentException("solid needs the archive file to write (-o)");
+        }
+    }
+
+    private static int parseNumber(String[] args, int i, String option) {
+        if (i == args.length) {
+            throw new IllegalArgumentException("Missing number after " + option);
+        }
+        try {
+            return Integer.parseInt(args[i]);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number after " + option + ": " + args[i]);
+        }
+    }
+
+    // Compresses or decompresses every file on the thread pool and prints a summary
+    private int process(boolean compress) {
+        List<Job> jobs;
+        try {
+            if (dictionaryPath != null) {
+                dictionary = Dictionary.load(dictionaryPath);
+            }
+            jobs = collectJobs(compress);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            return e instanceof IOException ? 1 : 2;
+        }
+
+        LongAdder inputBytes = new LongAdder();
+        LongAdder outputBytes = new LongAdder();
+        AtomicInteger failures = new AtomicInteger();
+        long start = System.nanoTime();
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, Math.max(jobs.size(), 1)));
+        for (Job job : jobs) {
+            pool.execute(() -> {
+                try {
+                    if (outputDirectory != null) {
+                        Files.createDirectories(job.target.toAbsolutePath().getParent());
+                    }
+                    if (compress) {
+                        Main.compressFile(job.source, job.target, level, dictionary, windowSize);
+                    } else {
+                        Main.decompressFile(job.source, job.target, dictionary);
+                    }
+                    inputBytes.add(Files.size(job.source));
+                    outputBytes.add(Files.size(job.target));
+                } catch (IOException | RuntimeException e) {
+                    failures.incrementAndGet();
+                    System.err.println(job.source + ": " + describe(e));
+                }
+            });
+        }
+        pool.shutdown();
+        try {
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            pool.shutdownNow();
+            Thread.currentThread().interrupt();
+            System.err.println("Interrupted");
+            return 1;
+        }
+
+        printSummary(compress, jobs.size() - failures.get(), failures.get(), inputBytes.sum(), outputBytes.sum(),
+                System.nanoTime() - start);
+        if (metrics) {
+            System.out.println(CodecMetrics.get());
+        }
+        return failures.get() == 0 ? 0 : 1;
+    }
+
+    // Trains a dictionary on the sample files and writes it to the -o file
+    private int train() {
+        try {
+            List<byte[]> samples = new ArrayList<>();
+            for (Job job : collectJobs(true)) {
+                samples.add(Files.readAllBytes(job.source));
+            }
+            Dictionary trained = DictionaryTrainer.train(samples, dictionarySize);
+            try (OutputStream out = new ChannelOutputStream(outputDirectory)) {
+                trained.write(out);
+            }
+            System.out.printf("Trained dictionary %08x on %d file(s): %d bytes%n", trained.getId(),
+                    samples.size(), trained.getContent().length);
+            return 0;
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println(describe(e));
+            return e instanceof IOException ? 1 : 2;
+        }
+    }
+
+    // Compresses the files into one solid archive, the -o file. Files in a directory are named by their path
+    // below it and sorted by it, which keeps similar files together.
+    private int solid() {
+        try {
+            if (dictionaryPath != null) {
+                dictionary = Dictionary.load(dictionaryPath);
+            }
+            List<Path> files = new ArrayList<>();
+            List<String> names = new ArrayList<>();
+            for (Path path : paths) {
+                if (!Files.isDirectory(path)) {
+                    files.add(path);
+                    names.add(path.getFileName().toString());
+                    continue;
+                }
+                if (!recursive) {
+                    throw new IllegalArgumentException(path + " is a directory (use -r)");
+                }
+                try (Stream<Path> found = Files.walk(path)) {
+                    found.filter(Files::isRegularFile)
+                            .filter(file -> !file.getFileName().toString().endsWith(ARCHIVE_SUFFIX))
+                            .sorted()
+                            .forEach(file -> {
+                                files.add(file);
+                                names.add(path.relativize(file).toString()
+                                        .replace(file.getFileSystem().getSeparator(), "/"));
+                            });
+                }
+            }
+            long totalSize = 0;
+            for (Path file : files) {
+                totalSize += Files.size(file);
+            }
+
+            long start = System.nanoTime();
+            int solidWindow = (int) Math.min(windowSize, Math.max(totalSize, LZ77.WINDOW_SIZE));
+            SolidArchive.write(files, names, outputDirectory, level, solidWindow, dictionary,
+                    SolidArchive.DEFAULT_CHECKPOINT_INTERVAL);
+            printSummary(true, files.size(), 0, totalSize, Files.size(outputDirectory), System.nanoTime() - start);
+            return 0;
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println(describe(e));
+            return e instanceof IOException ? 1 : 2;
+        }
+    }
+
+    // Extracts the named files of a solid archive, or all of them, below the -o directory or the current one
+    private int extract() {
+        Path directory = outputDirectory != null ? outputDirectory : Paths.get("");
+        try {
+            if (dictionaryPath != null) {
+                dictionary = Dictionary.load(dictionaryPath);
+            }
+            try (SolidArchive archive = SolidArchive.open(paths.get(0), dictionary)) {
+                if (paths.size() == 1) {
+                    archive.extractAll(directory);
+                    System.out.printf("Extracted %d file(s)%n", archive.getEntries().size());
+                    return 0;
+                }
+
+                int status = 0;
+                for (Path name : paths.subList(1, paths.size())) {
+                    SolidArchive.Entry entry = archive.find(name.toString());
+                    if (entry == null) {
+                        System.err.println(name + ": Not in the archive");
+                        status = 1;
+                        continue;
+                    }
+                    Path target = SolidArchive.target(directory, entry);
+                    Files.createDirectories(target.toAbsolutePath().getParent());
+                    try (OutputStream out = new ChannelOutputStream(target)) {
+                        archive.extract(entry, out);
+                    } catch (IOException e) {
+                        System.err.println(name + ": " + describe(e));
+                        status = 1;
+                    }
+                }
+                return status;
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println(describe(e));
+            return e instanceof IOException ? 1 : 2;
+        }
+    }
+
+    // Prints the files of a solid archive with their sizes
+    private int list() {
+        try {
+            if (dictionaryPath != null) {
+                dictionary = Dictionary.load(dictionaryPath);
+            }
+        } catch (IOException e) {
+            System.err.println(describe(e));
+            return 1;
+        }
+        try (SolidArchive archive = SolidArchive.open(paths.get(0), dictionary)) {
+            for (SolidArchive.Entry entry : archive.getEntries()) {
+                System.out.printf("%12d  %08x  %s%n", entry.getSize(), entry.getChecksum(), entry.getName());
+            }
+            return 0;
+        } catch (IOException e) {
+            System.err.println(paths.get(0) + ": " + describe(e));
+            return 1;
+        }
+    }
+
+    // Lists the files to process; directories are walked when -r is given
+    private List<Job> collectJobs(boolean compress) throws IOException {
+        List<Job> jobs = new ArrayList<>();
+        for (Path path : paths) {
+            if (!Files.isDirectory(path)) {
+                jobs.add(new Job(path, target(null, path, compress)));
+                continue;
+            }
+            if (!recursive) {
+                throw new IllegalArgumentException(path + " is a directory (use -r)");
+            }
+
+            // Archives are skipped when compressing a tree, and only archives are taken when decompressing
+            try (Stream<Path> files = Files.walk(path)) {
+                files.filter(Files::isRegularFile)
+                        .filter(file -> file.getFileName().toString().endsWith(ARCHIVE_SUFFIX) != compress)
+                        .forEach(file -> jobs.add(new Job(file, target(path, file, compress))));
+            }
+        }
+        return jobs;
+    }
+
+    // Where the result for a file goes; root is the directory the file was found in, or null
+    private Path target(Path root, Path file, boolean compress) {
+        String name = file.getFileName().toString();
+        String targetName;
+        if (compress) {
+            targetName = name + ARCHIVE_SUFFIX;
+        } else if (name.endsWith(ARCHIVE_SUFFIX) && name.length() > ARCHIVE_SUFFIX.length()) {
+            targetName = name.substring(0, name.length() - ARCHIVE_SUFFIX.length());
+        } else {
+            targetName = name + DECOMPRESSED_SUFFIX;
+        }
+
+        if (outputDirectory == null) {
+            return file.resolveSibling(targetName);
+        }
+        if (root == null) {
+            return outputDirectory.resolve(targetName);
+        }
+        return outputDirectory.resolve(root.relativize(file)).resolveSibling(targetName);
+    }
+
+    private static void printSummary(boolean compress, int files, int failures, long inputBytes, long outputBytes,
+                                     long nanos) {
+        double seconds = nanos / 1e9;
+        long rawBytes = compress ? inputBytes : outputBytes;
+        long compressedBytes = compress ? outputBytes : inputBytes;
+        double saved = rawBytes == 0 ? 0 : 100.0 * (rawBytes - compressedBytes) / rawBytes;
+
+        System.out.printf("%s %d file(s): %d -> %d bytes (%.2f %% smaller), %.2f s, %.1f MB/s%s%n",
+                compress ? "Compressed" : "Decompressed", files, inputBytes, outputBytes, saved, seconds,
+                seconds == 0 ? 0 : rawBytes / 1e6 / seconds, failures == 0 ? "" : ", " + failures + " failed");
+    }
+
+    // Prints the size of every file
+    private int size() {
+        int status = 0;
+        for (Path path : paths) {
+            try {
+                System.out.println(path + ": " + Files.size(path) + " bytes");
+            } catch (IOException e) {
+                System.err.println(path + ": " + describe(e));
+                status = 1;
+            }
+        }
+        return status;
+    }
+
+    // Error message for a failed file; NoSuchFileException only carries the file name
+    private static String describe(Exception e) {
+        return e instanceof NoSuchFileException ? "No such file" : e.getMessage();
+    }
+}
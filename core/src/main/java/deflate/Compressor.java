@@ -0,0 +1,84 @@
+package deflate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.CRC32C;
+
+// Reusable state for compressing: the window, the match finder's hash tables, the tag buffer and the bit
+// buffer of the block coder. They are sized once and reset between uses, so compressing many small inputs
+// doesn't allocate the window and tables each time. A compressor is used by one thread at a time; acquire
+// takes one from a bounded pool and release returns it.
+class Compressor {
+    private static final int POOL_SIZE = Runtime.getRuntime().availableProcessors(); // Idle compressors kept
+    private static final BlockingQueue<Compressor> POOL = new ArrayBlockingQueue<>(POOL_SIZE);
+    // Largest window kept in the pool, that of the default block size. Long-range windows and those of larger
+    // blocks are dropped on release, so idle contexts don't hold on to them for the life of the process.
+    public static final int MAX_POOLED_WINDOW = LZ77.WINDOW_SIZE + Archive.DEFAULT_BLOCK_SIZE;
+
+    final LZ77.MatchFinder finder = new LZ77.MatchFinder();
+    final TagBuffer tags = new TagBuffer();
+    final BitWriter writer = new BitWriter(1024); // Coded block, starting with its type
+    private final CRC32C crc = new CRC32C(); // Reset for each block
+    private byte[] window = new byte[0];
+    private LongRangeFinder longRangeFinder; // Made for the first long-range stream
+
+    // Takes an idle compressor from the pool, or makes a new one
+    public static Compressor acquire() {
+        Compressor compressor = POOL.poll();
+        return compressor != null ? compressor : new Compressor();
+    }
+
+    // Returns the compressor to the pool, where it is dropped if the pool is full; it must not be used afterwards
+    public void release() {
+        reset();
+        longRangeFinder = null;
+        if (window.length > MAX_POOLED_WINDOW) {
+            window = new byte[0];
+        }
+        POOL.offer(this);
+    }
+
+    // Forgets the last input, keeping the buffers
+    public void reset() {
+        tags.clear();
+        writer.reset();
+    }
+
+    // CRC-32C of length bytes of the data from the offset, the checksum of a block to compress
+    int checksum(byte[] data, int offset, int length) {
+        crc.reset();
+        crc.update(data, offset, length);
+        return (int) crc.getValue();
+    }
+
+    // A window of at least the given size, reused while it is large enough; its contents are undefined
+    byte[] window(int size) {
+        if (window.length < size) {
+            window = new byte[size];
+        }
+        return window;
+    }
+
+    // The long-range finder, its anchor table takes a few MB so it is only made when needed
+    LongRangeFinder longRangeFinder() {
+        if (longRangeFinder == null) {
+            longRangeFinder = new LongRangeFinder();
+        }
+        return longRangeFinder;
+    }
+
+    // Compresses the data into a complete archive, the same as DeflateOutputStream with the level
+    public byte[] compress(byte[] data, int level) {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try (DeflateOutputStream out = new DeflateOutputStream(result, level, Archive.DEFAULT_BLOCK_SIZE, false, null,
+                LZ77.WINDOW_SIZE, this)) {
+            out.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // Can't happen with in-memory streams
+        }
+        return result.toByteArray();
+    }
+}
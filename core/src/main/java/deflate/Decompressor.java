@@ -0,0 +1,74 @@
+package deflate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.CRC32C;
+
+// Reusable state for decompressing: the window, the decoded tags and the Huffman decoders of the block
+// coder. Like Compressor, it is reset between uses instead of being reallocated, used by one thread at a
+// time and pooled through acquire and release.
+class Decompressor {
+    private static final int POOL_SIZE = Runtime.getRuntime().availableProcessors(); // Idle decompressors kept
+    private static final BlockingQueue<Decompressor> POOL = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    final TagBuffer tags = new TagBuffer(); // Tags of the last decoded block
+    final int[] literalLengths = new int[TokenCoder.LITERAL_LENGTH_SYMBOLS];
+    final int[] offsetLengths = new int[TokenCoder.OFFSET_CODES];
+    final int[] longLiteralLengths = new int[TokenCoder.LONG_LITERAL_LENGTH_SYMBOLS]; // Code lengths of long codes
+    final int[] longOffsetLengths = new int[TokenCoder.LONG_OFFSET_CODES];
+    final HuffmanDecoder literalDecoder = new HuffmanDecoder(TokenCoder.LONG_LITERAL_LENGTH_SYMBOLS); // Either code
+    final HuffmanDecoder offsetDecoder = new HuffmanDecoder(TokenCoder.LONG_OFFSET_CODES);
+    private final CRC32C crc = new CRC32C(); // Reset for each block
+    private byte[] window = new byte[0];
+
+    // Takes an idle decompressor from the pool, or makes a new one
+    public static Decompressor acquire() {
+        Decompressor decompressor = POOL.poll();
+        return decompressor != null ? decompressor : new Decompressor();
+    }
+
+    // Returns the decompressor to the pool, where it is dropped if the pool is full; it must not be used afterwards
+    public void release() {
+        reset();
+        if (window.length > Compressor.MAX_POOLED_WINDOW) {
+            window = new byte[0];
+        }
+        POOL.offer(this);
+    }
+
+    // Forgets the last block, keeping the buffers
+    public void reset() {
+        tags.clear();
+    }
+
+    // CRC-32C of length bytes of the data from the offset, the checksum of a replayed block
+    int checksum(byte[] data, int offset, int length) {
+        crc.reset();
+        crc.update(data, offset, length);
+        return (int) crc.getValue();
+    }
+
+    // A window of at least the given size, reused while it is large enough; its contents are undefined
+    byte[] window(int size) {
+        if (window.length < size) {
+            window = new byte[size];
+        }
+        return window;
+    }
+
+    // Makes room for a block after the history in the window, see Archive.growWindow. The grown window is
+    // kept for the next use.
+    byte[] growWindow(Archive archive, int historyLength, int blockLength) throws IOException {
+        window = archive.growWindow(window, historyLength, blockLength);
+        return window;
+    }
+
+    // Decompresses a complete archive
+    public byte[] decompress(byte[] archive) throws IOException {
+        try (DeflateInputStream in = new DeflateInputStream(new ByteArrayInputStream(archive), null, this)) {
+            return in.readAllBytes();
+        }
+    }
+}
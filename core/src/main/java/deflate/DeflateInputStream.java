@@ -0,0 +1,145 @@
+package deflate;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.CRC32C;
+
+// Input stream that decompresses the blocks written by DeflateOutputStream
+class DeflateInputStream extends InputStream {
+    private final DataInputStream in; // Source of the compressed blocks
+    private byte[] window; // History followed by the current block
+    private int historyLength = 0; // Number of history bytes in front of the block
+    private int position = 0; // Next byte to return from the window
+    private int limit = 0; // End of the decompressed data in the window
+    private Archive archive; // Header read at the start of the stream
+    private Dictionary dictionary; // Given dictionary, then null if the archive turns out not to need it
+    private final Decompressor context; // Tag buffer, Huffman decoders and the window
+    private final boolean pooled; // The context was taken from the pool and goes back on close
+    private final CRC32C streamChecksum = new CRC32C(); // Of the checksums of the blocks so far
+    private boolean finished = false;
+    private boolean closed = false;
+
+    public DeflateInputStream(InputStream in) {
+        this(in, null);
+    }
+
+    // The dictionary is only used if the archive was compressed with it
+    public DeflateInputStream(InputStream in, Dictionary dictionary) {
+        this(in, dictionary, null);
+    }
+
+    // Decompresses with the given context, which the caller keeps and must not use until the stream is closed.
+    // Without one, a context is taken from the pool and returned when the stream is closed.
+    DeflateInputStream(InputStream in, Dictionary dictionary, Decompressor context) {
+        this.in = new DataInputStream(in);
+        this.dictionary = dictionary;
+        this.pooled = context == null;
+        this.context = pooled ? Decompressor.acquire() : context;
+        this.context.reset();
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        if (len == 0) {
+            return 0;
+        }
+        while (position == limit) {
+            if (finished || !readBlock()) {
+                return -1; // End of the stream
+            }
+        }
+
+        int count = Math.min(len, limit - position);
+        System.arraycopy(window, position, b, off, count);
+        position += count;
+        return count;
+    }
+
+    // Writes each decompressed block straight from the window
+    @Override
+    public long transferTo(OutputStream out) throws IOException {
+        ensureOpen();
+        long count = 0;
+        while (position < limit || (!finished && readBlock())) {
+            out.write(window, position, limit - position);
+            count += limit - position;
+            position = limit;
+        }
+        return count;
+    }
+
+    @Override
+    public int available() throws IOException {
+        ensureOpen();
+        return limit - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed && pooled) {
+            context.release();
+        }
+        closed = true;
+        in.close();
+    }
+
+    // Reads and decompresses the next block, returns false at the end of the stream
+    private boolean readBlock() throws IOException {
+        if (archive == null) {
+            archive = Archive.read(in);
+            dictionary = archive.checkDictionary(dictionary);
+            window = context.window(archive.getInitialWindowSize());
+        }
+
+        try {
+            int blockLength = in.readInt();
+            if (blockLength == 0) {
+                if (archive.hasChecksums() && in.readInt() != (int) streamChecksum.getValue()) {
+                    throw new IOException("Stream checksum mismatch");
+                }
+                finished = true; // The block index that follows is only needed for random access
+                return false;
+            }
+            int compressedLength = in.readInt();
+            // Checked before the data is allocated, a corrupt length mustn't take more memory than a block
+            if (blockLength < 0 || blockLength > archive.getBlockSize() || compressedLength < 0
+                    || compressedLength > archive.getMaxCompressedLength(blockLength)) {
+                throw new IOException("Corrupt block header");
+            }
+
+            byte[] compressedData = new byte[compressedLength];
+            in.readFully(compressedData);
+
+            // Keep the tail of the previous blocks, or the dictionary, as history
+            historyLength = archive.prepareHistory(window, limit, dictionary);
+            window = context.growWindow(archive, historyLength, blockLength);
+
+            // Decode the tags, then replay them into the window
+            Archive.DecodedBlock block = archive.decodeBlock(context, compressedData, blockLength);
+            limit = Archive.replayBlock(context, block, window, historyLength, blockLength);
+            position = historyLength;
+            if (archive.hasChecksums()) {
+                Archive.addBlockChecksum(streamChecksum, block);
+            }
+            return true;
+        } catch (EOFException e) {
+            throw new IOException("Unexpected end of archive", e);
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+}
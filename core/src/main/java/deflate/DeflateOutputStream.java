@@ -0,0 +1,203 @@
+package deflate;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32C;
+
+// Output stream that compresses data in fixed-size blocks with a sliding LZ77 window
+class DeflateOutputStream extends OutputStream {
+    private final DataOutputStream out; // Destination of the compressed blocks
+    private final int level; // LZ77 compression level
+    private final Archive archive; // Header written at the start of the stream
+    private final BlockIndex index; // Lengths of the blocks written so far
+    private final byte[] window; // History followed by the current block
+    private final Dictionary dictionary; // Primes the window, or null
+    private final Compressor context; // Match finder, tag and bit buffers, and the window
+    private final boolean pooled; // The context was taken from the pool and goes back on close
+    private final CRC32C streamChecksum = new CRC32C(); // Of the checksums of the blocks written so far
+    private int historyLength = 0; // Number of history bytes in front of the block
+    private int position = 0; // End of the buffered data in the window
+    private boolean headerWritten = false;
+    private boolean closed = false;
+
+    public DeflateOutputStream(OutputStream out) {
+        this(out, LZ77.DEFAULT_LEVEL);
+    }
+
+    public DeflateOutputStream(OutputStream out, int level) {
+        this(out, level, Archive.DEFAULT_BLOCK_SIZE);
+    }
+
+    public DeflateOutputStream(OutputStream out, int level, int blockSize) {
+        this(out, level, blockSize, false);
+    }
+
+    // Independent blocks compress a little worse but can be decoded on their own, see SeekableArchive
+    public DeflateOutputStream(OutputStream out, int level, int blockSize, boolean independent) {
+        this(out, level, blockSize, independent, null);
+    }
+
+    // The dictionary is the history of the first block, or of every block if they are independent
+    public DeflateOutputStream(OutputStream out, int level, int blockSize, boolean independent,
+                               Dictionary dictionary) {
+        this(out, level, blockSize, independent, dictionary, LZ77.WINDOW_SIZE);
+    }
+
+    // A window size above LZ77.WINDOW_SIZE turns on the long-range mode: long matches are found as far back
+    // as the window size, up to LZ77.MAX_LONG_WINDOW, and the decompressor needs a window that large
+    public DeflateOutputStream(OutputStream out, int level, int blockSize, boolean independent,
+                               Dictionary dictionary, int windowSize) {
+        this(out, level, blockSize, independent, dictionary, windowSize, null);
+    }
+
+    // Compresses with the given context, which the caller keeps and must not use until the stream is closed.
+    // Without one, a context is taken from the pool and returned when the stream is closed.
+    DeflateOutputStream(OutputStream out, int level, int blockSize, boolean independent, Dictionary dictionary,
+                        int windowSize, Compressor context) {
+        if (level < LZ77.MIN_LEVEL || level > LZ77.MAX_LEVEL) {
+            throw new IllegalArgumentException("Compression level must be between " + LZ77.MIN_LEVEL + " and " + LZ77.MAX_LEVEL);
+        }
+        this.out = new DataOutputStream(out);
+        this.level = level;
+        int flags = Archive.FLAG_BLOCK_TYPES | Archive.FLAG_CHECKSUMS
+                | (independent ? Archive.FLAG_INDEPENDENT_BLOCKS : 0)
+                | (dictionary != null ? Archive.FLAG_DICTIONARY : 0)
+                | (windowSize > LZ77.WINDOW_SIZE ? Archive.FLAG_LONG_WINDOW : 0);
+        this.archive = new Archive(flags, blockSize, dictionary != null ? dictionary.getId() : 0, windowSize);
+        this.index = new BlockIndex(archive.getHeaderSize());
+        this.pooled = context == null;
+        this.context = pooled ? Compressor.acquire() : context;
+        this.context.reset();
+        if (archive.isLongRange()) {
+            this.context.longRangeFinder().reset(windowSize);
+        }
+        this.window = this.context.window(archive.getWindowCapacity());
+        this.dictionary = dictionary;
+        if (dictionary != null) {
+            historyLength = archive.prepareHistory(window, 0, dictionary);
+            position = historyLength;
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            int blockEnd = historyLength + archive.getBlockSize();
+            int count = Math.min(len, blockEnd - position); // Copy as much as fits into the block
+            System.arraycopy(b, off, window, position, count);
+            position += count;
+            off += count;
+            len -= count;
+
+            if (position == blockEnd) {
+                writeBlock(); // The block is full
+            }
+        }
+    }
+
+    // Writes the remaining bytes of the buffer, copying them straight into the window
+    public void write(ByteBuffer src) throws IOException {
+        ensureOpen();
+        while (src.hasRemaining()) {
+            int blockEnd = historyLength + archive.getBlockSize();
+            int count = Math.min(src.remaining(), blockEnd - position);
+            src.get(window, position, count);
+            position += count;
+
+            if (position == blockEnd) {
+                writeBlock();
+            }
+        }
+    }
+
+    // Compresses the buffered data as a block and flushes the underlying stream
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        writeBlock();
+        out.flush();
+    }
+
+    // Ends the current block and starts the next one without history, so that it can be decoded from its
+    // start (see SeekableArchive.copyRange). Returns the number of that block. The dictionary isn't put back
+    // in front of it, as a sequential reader still has the data before the checkpoint as history.
+    int checkpoint() throws IOException {
+        ensureOpen();
+        writeBlock();
+        historyLength = 0;
+        position = 0;
+        if (archive.isLongRange()) {
+            context.longRangeFinder().reset(archive.getWindowSize());
+        }
+        return index.size();
+    }
+
+    // Writes the last block, the end marker and the block index, then closes the underlying stream
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            writeBlock();
+            writeHeader();
+            out.writeInt(0); // An empty block marks the end of the stream
+            out.writeInt((int) streamChecksum.getValue());
+            index.write(out);
+            out.flush();
+        } finally {
+            closed = true;
+            if (pooled) {
+                context.release();
+            }
+            out.close();
+        }
+    }
+
+    // Compresses the buffered block and slides the window
+    private void writeBlock() throws IOException {
+        writeHeader();
+        int blockLength = position - historyLength;
+        if (blockLength == 0) {
+            return;
+        }
+
+        // Compress the block, with the history as the sliding window
+        byte[] compressedData = archive.compressBlock(context, window, historyLength, position, level);
+        Archive.addBlockChecksum(streamChecksum, compressedData);
+
+        // Write the block: uncompressed length, compressed length and the data
+        out.writeInt(blockLength);
+        out.writeInt(compressedData.length);
+        out.write(compressedData);
+        index.add(blockLength, compressedData.length);
+
+        // Keep the tail of the data, or the dictionary, as history for the next block
+        historyLength = archive.prepareHistory(window, position, dictionary);
+        if (archive.isLongRange()) {
+            context.longRangeFinder().slide(position - historyLength);
+        }
+        position = historyLength;
+    }
+
+    private void writeHeader() throws IOException {
+        if (!headerWritten) {
+            archive.write(out);
+            headerWritten = true;
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+}
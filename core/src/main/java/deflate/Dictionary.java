@@ -0,0 +1,69 @@
+package deflate;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.Adler32;
+
+// Preset dictionary: content that primes the LZ77 window before the first byte of each archive
+class Dictionary {
+    public static final int MAGIC = 0x44464C44; // "DFLD", written at the start of a dictionary file
+    public static final int MAX_SIZE = LZ77.WINDOW_SIZE; // Matches can't reach further back
+
+    private final byte[] content;
+    private final int id; // Identifies the dictionary in archive headers
+
+    // Keeps the last MAX_SIZE bytes of the content
+    Dictionary(byte[] content) {
+        this.content = Arrays.copyOfRange(content, Math.max(0, content.length - MAX_SIZE), content.length);
+
+        // Adler-32 of the content, as zlib does for its dictionaries
+        Adler32 checksum = new Adler32();
+        checksum.update(this.content);
+        this.id = (int) checksum.getValue();
+    }
+
+    public byte[] getContent() {
+        return content;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    // Writes the dictionary: magic, the content length and the content
+    public void write(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(content.length);
+        data.write(content);
+        data.flush();
+    }
+
+    // Loads a dictionary file; any other file is used as plain dictionary content
+    public static Dictionary load(Path path) throws IOException {
+        byte[] data = Files.readAllBytes(path);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        if (data.length < 4 || in.readInt() != MAGIC) {
+            return new Dictionary(data);
+        }
+
+        try {
+            int length = in.readInt();
+            if (length < 0 || length > in.available()) {
+                throw new IOException("Corrupt dictionary");
+            }
+            byte[] content = new byte[length];
+            in.readFully(content);
+            return new Dictionary(content);
+        } catch (EOFException e) {
+            throw new IOException("Corrupt dictionary", e);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package deflate;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Builds a dictionary from sample files. The corpus is split into one epoch per dictionary segment, and
+// from each epoch the segment whose 8-byte substrings occur in the most samples is taken. The best
+// segments go last, where matches are cheapest. Blocks build their own token codes, so the dictionary
+// carries no Huffman code.
+class DictionaryTrainer {
+    private static final int KMER_LENGTH = 8; // Length of the substrings that are counted
+    private static final int SEGMENT_LENGTH = 64; // Length of the pieces the dictionary is made of
+    private static final int HASH_BITS = 20;
+
+    // A piece of the corpus picked for the dictionary
+    private static class Segment {
+        final int start;
+        final long score;
+
+        Segment(int start, long score) {
+            this.start = start;
+            this.score = score;
+        }
+    }
+
+    // Trains a dictionary of at most size bytes
+    public static Dictionary train(List<byte[]> samples, int size) {
+        if (size < 1 || size > Dictionary.MAX_SIZE) {
+            throw new IllegalArgumentException("Dictionary size must be between 1 and " + Dictionary.MAX_SIZE);
+        }
+
+        ByteArrayOutputStream corpus = new ByteArrayOutputStream();
+        for (byte[] sample : samples) {
+            corpus.writeBytes(sample);
+        }
+        byte[] data = corpus.toByteArray();
+        byte[] content = data.length <= size ? data : selectSegments(samples, data, size);
+        return new Dictionary(content);
+    }
+
+    // Picks the best segment of each epoch of the corpus, and returns them from worst to best
+    private static byte[] selectSegments(List<byte[]> samples, byte[] data, int size) {
+        // Count the samples each substring occurs in; substrings from a single sample don't help other files
+        int[] frequencies = new int[1 << HASH_BITS];
+        int[] lastSample = new int[1 << HASH_BITS];
+        Arrays.fill(lastSample, -1);
+        int sampleStart = 0;
+        for (int sample = 0; sample < samples.size(); sample++) {
+            int sampleEnd = sampleStart + samples.get(sample).length;
+            for (int i = sampleStart; i + KMER_LENGTH <= sampleEnd; i++) {
+                int hash = hash(data, i);
+                if (lastSample[hash] != sample) {
+                    lastSample[hash] = sample;
+                    frequencies[hash]++;
+                }
+            }
+            sampleStart = sampleEnd;
+        }
+        for (int i = 0; i < frequencies.length; i++) {
+            if (frequencies[i] < 2) {
+                frequencies[i] = 0;
+            }
+        }
+
+        int segmentCount = (size + SEGMENT_LENGTH - 1) / SEGMENT_LENGTH;
+        int epochLength = Math.max(data.length / segmentCount, SEGMENT_LENGTH);
+        List<Segment> segments = new ArrayList<>();
+        for (int epochStart = 0; epochStart + SEGMENT_LENGTH <= data.length; epochStart += epochLength) {
+            int epochEnd = Math.min(epochStart + epochLength, data.length);
+            Segment best = bestSegment(data, frequencies, epochStart, epochEnd);
+            if (best.score == 0) {
+                continue;
+            }
+            segments.add(best);
+
+            // Substrings already in the dictionary gain nothing from being picked again
+            for (int i = best.start; i + KMER_LENGTH <= best.start + SEGMENT_LENGTH; i++) {
+                frequencies[hash(data, i)] = 0;
+            }
+        }
+
+        segments.sort((x, y) -> Long.compare(x.score, y.score));
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        for (Segment segment : segments) {
+            content.write(data, segment.start, SEGMENT_LENGTH);
+        }
+        byte[] result = content.toByteArray();
+        return Arrays.copyOfRange(result, Math.max(0, result.length - size), result.length);
+    }
+
+    // Finds the segment in the epoch with the highest sum of substring frequencies, using a sliding sum
+    private static Segment bestSegment(byte[] data, int[] frequencies, int epochStart, int epochEnd) {
+        int kmers = SEGMENT_LENGTH - KMER_LENGTH + 1; // Substrings in a segment
+        long score = 0;
+        for (int i = epochStart; i < epochStart + kmers; i++) {
+            score += frequencies[hash(data, i)];
+        }
+
+        Segment best = new Segment(epochStart, score);
+        for (int start = epochStart + 1; start + SEGMENT_LENGTH <= epochEnd; start++) {
+            score += frequencies[hash(data, start + kmers - 1)] - frequencies[hash(data, start - 1)];
+            if (score > best.score) {
+                best = new Segment(start, score);
+            }
+        }
+        return best;
+    }
+
+    private static int hash(byte[] data, int position) {
+        long kmer = 0;
+        for (int i = 0; i < KMER_LENGTH; i++) {
+            kmer = (kmer << 8) | (data[position + i] & 0xFF);
+        }
+        return (int) ((kmer * 0x9E3779B97F4A7C15L) >>> (64 - HASH_BITS));
+    }
+}
@@ -0,0 +1,236 @@
+package deflate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Comparator;
+
+// Huffman class for canonical, length-limited Huffman coding
+class Huffman {
+    public static final int MAX_CODE_LENGTH = 15; // Codes never get longer than this
+    private static final int HEADER_SIZE = 256 / 2 + 4; // Typical size of the code lengths and the symbol count
+
+    private int[] codeLengths = new int[256]; // Code length for each byte, 0 if the byte is unused
+    private int[] codes = new int[256]; // Canonical code for each byte
+
+    // Builds the Huffman code from given data
+    public void buildTree(byte[] data) {
+        int[] frequencies = new int[256]; // Frequency of each byte value
+        countBytes(data, 0, data.length, frequencies);
+
+        codeLengths = buildCodeLengths(frequencies, MAX_CODE_LENGTH);
+        codes = buildCanonicalCodes(codeLengths);
+    }
+
+    // Adds the number of times each byte value occurs in data[start..end) to counts. Four tables are counted
+    // in turn, so that a run of one value doesn't make each increment wait for the one before it to be stored.
+    public static void countBytes(byte[] data, int start, int end, int[] counts) {
+        int[] more = new int[3 * 256]; // The other three tables, one after the other
+        int i = start;
+        for (; i <= end - 4; i += 4) {
+            counts[data[i] & 0xFF]++;
+            more[data[i + 1] & 0xFF]++;
+            more[256 + (data[i + 2] & 0xFF)]++;
+            more[512 + (data[i + 3] & 0xFF)]++;
+        }
+        for (; i < end; i++) {
+            counts[data[i] & 0xFF]++;
+        }
+        for (int value = 0; value < 256; value++) {
+            counts[value] += more[value] + more[256 + value] + more[512 + value];
+        }
+    }
+
+    // Computes Huffman code lengths for the frequencies, limited to maxLength bits
+    public static int[] buildCodeLengths(int[] frequencies, int maxLength) {
+        int symbols = frequencies.length;
+        PriorityQueue<Node> priorityQueue = new PriorityQueue<>(Comparator.comparingInt(n -> n.frequency)); // Priority queue for the nodes
+
+        for (int value = 0; value < symbols; value++) {
+            if (frequencies[value] > 0) {
+                priorityQueue.add(new Node(frequencies[value], value)); // Add leaf nodes with frequencies
+            }
+        }
+
+        // Pad with unused leaves so that every symbol gets a code of at least one bit
+        for (int value = 0; priorityQueue.size() < 2 && value < symbols; value++) {
+            if (frequencies[value] == 0) {
+                priorityQueue.add(new Node(0, value));
+            }
+        }
+
+        while (priorityQueue.size() > 1) { // While there are more than one node, merge the lowest frequency nodes
+            Node left = priorityQueue.poll();
+            Node right = priorityQueue.poll();
+            Node newNode = new Node(left.frequency + right.frequency, left, right); // Create internal node
+            priorityQueue.add(newNode); // Add the new node back to the queue
+        }
+
+        // Count the leaves at each depth of the tree
+        int[] lengthCounts = new int[symbols + 1];
+        List<Node> leaves = new ArrayList<>();
+        countLeaves(priorityQueue.poll(), 0, lengthCounts, leaves);
+
+        // Move leaves that are too deep up to the length limit
+        int kraftSum = 0; // Sum of 2^(maxLength - length) over all leaves
+        int[] limitedCounts = new int[maxLength + 1];
+        for (int length = 1; length < lengthCounts.length; length++) {
+            int limited = Math.min(length, maxLength);
+            limitedCounts[limited] += lengthCounts[length];
+            kraftSum += lengthCounts[length] << (maxLength - limited);
+        }
+
+        // Restore a valid prefix code: split a shorter leaf to make room for each overflowed leaf
+        while (kraftSum > 1 << maxLength) {
+            int length = maxLength - 1;
+            while (limitedCounts[length] == 0) {
+                length--;
+            }
+            limitedCounts[length]--; // Move one leaf down a level
+            limitedCounts[length + 1] += 2; // It becomes the parent of two leaves
+            limitedCounts[maxLength]--; // One of them is the leaf taken from the deepest level
+            kraftSum--;
+        }
+
+        // Give the shortest codes to the most frequent symbols
+        leaves.sort((x, y) -> x.frequency != y.frequency ? Integer.compare(y.frequency, x.frequency)
+                : Integer.compare(x.value, y.value));
+        int[] codeLengths = new int[symbols];
+        int length = 1;
+        for (Node leaf : leaves) {
+            while (limitedCounts[length] == 0) {
+                length++;
+            }
+            codeLengths[leaf.value] = length;
+            limitedCounts[length]--;
+        }
+
+        return codeLengths;
+    }
+
+    // Collects the leaves of the tree and counts them per depth
+    private static void countLeaves(Node node, int depth, int[] lengthCounts, List<Node> leaves) {
+        if (node.isLeaf()) {
+            lengthCounts[depth]++;
+            leaves.add(node);
+        } else {
+            countLeaves(node.left, depth + 1, lengthCounts, leaves);
+            countLeaves(node.right, depth + 1, lengthCounts, leaves);
+        }
+    }
+
+    // Adds the number of codes of each length to counts, indexed by length; unused symbols are not counted
+    public static void countCodeLengths(int[] codeLengths, int[] counts) {
+        for (int length : codeLengths) {
+            if (length != 0) {
+                counts[length]++;
+            }
+        }
+    }
+
+    // Assigns canonical codes: shorter codes first, then by symbol value within a length
+    public static int[] buildCanonicalCodes(int[] codeLengths) {
+        int[] lengthCounts = new int[MAX_CODE_LENGTH + 2];
+        for (int length : codeLengths) {
+            lengthCounts[length]++;
+        }
+        lengthCounts[0] = 0;
+
+        int[] nextCode = new int[MAX_CODE_LENGTH + 2]; // First code of each length
+        int code = 0;
+        for (int length = 1; length <= MAX_CODE_LENGTH + 1; length++) {
+            code = (code + lengthCounts[length - 1]) << 1;
+            nextCode[length] = code;
+        }
+
+        int[] codes = new int[codeLengths.length];
+        for (int symbol = 0; symbol < codeLengths.length; symbol++) {
+            if (codeLengths[symbol] != 0) {
+                codes[symbol] = nextCode[codeLengths[symbol]]++;
+            }
+        }
+        return codes;
+    }
+
+    // Writes code lengths as 4-bit values, a zero length is followed by 4 bits counting further zeros
+    public static void writeCodeLengths(BitWriter writer, int[] codeLengths) {
+        for (int symbol = 0; symbol < codeLengths.length; symbol++) {
+            writer.writeBits(codeLengths[symbol], 4);
+            if (codeLengths[symbol] == 0) {
+                int run = 0; // Unused symbols come in long runs, store them together
+                while (run < 15 && symbol + 1 < codeLengths.length && codeLengths[symbol + 1] == 0) {
+                    run++;
+                    symbol++;
+                }
+                writer.writeBits(run, 4);
+            }
+        }
+    }
+
+    // Reads code lengths written by writeCodeLengths
+    public static void readCodeLengths(BitReader reader, int[] codeLengths) {
+        for (int symbol = 0; symbol < codeLengths.length; symbol++) {
+            codeLengths[symbol] = (int) reader.readBits(4);
+            if (codeLengths[symbol] == 0) {
+                int run = (int) reader.readBits(4);
+                if (symbol + run >= codeLengths.length) {
+                    throw new IllegalArgumentException("Corrupt Huffman header");
+                }
+                for (int i = 0; i < run; i++) {
+                    codeLengths[++symbol] = 0;
+                }
+            }
+        }
+    }
+
+    // Compresses the given data using Huffman coding
+    public byte[] compress(byte[] data) {
+        buildTree(data); // Ensure the Huffman code is built
+        return encode(data);
+    }
+
+    // Encodes the data with the code from the last buildTree call
+    public byte[] encode(byte[] data) {
+        BitWriter writer = new BitWriter(HEADER_SIZE + data.length / 2);
+
+        // Store the code lengths, the decoder rebuilds the canonical codes from them
+        writeCodeLengths(writer, codeLengths);
+
+        // Store the number of encoded bytes so the decoder knows where the bit stream ends
+        writer.writeBits(data.length, 32);
+
+        // Write the Huffman code of each byte
+        for (byte b : data) {
+            writer.writeBits(codes[b & 0xFF], codeLengths[b & 0xFF]);
+        }
+
+        return writer.toByteArray(); // Return the full compressed data
+    }
+
+    // Decompresses Huffman-encoded data
+    public byte[] decompress(byte[] compressedData) {
+        return decompress(compressedData, 0);
+    }
+
+    // Decompresses the data from the offset on
+    public byte[] decompress(byte[] compressedData, int offset) {
+        BitReader reader = new BitReader(compressedData, offset, compressedData.length);
+
+        // Read the code lengths and rebuild the canonical codes
+        readCodeLengths(reader, codeLengths);
+        codes = buildCanonicalCodes(codeLengths);
+
+        int numSymbols = (int) reader.readBits(32); // Read the number of encoded bytes
+        if (numSymbols < 0 || numSymbols > (compressedData.length - offset) * 8L) { // Every byte takes at least one bit
+            throw new IllegalArgumentException("Corrupt Huffman header");
+        }
+        HuffmanDecoder decoder = new HuffmanDecoder(codeLengths);
+
+        byte[] decompressedData = new byte[numSymbols]; // Output buffer for the decompressed bytes
+        for (int i = 0; i < numSymbols; i++) {
+            decompressedData[i] = (byte) decoder.decode(reader);
+        }
+
+        return decompressedData; // Return the final decompressed data
+    }
+}
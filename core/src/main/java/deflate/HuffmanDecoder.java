@@ -0,0 +1,79 @@
+package deflate;
+
+import java.util.Arrays;
+
+// Decodes canonical Huffman codes with a lookup table for short codes. The tables are sized for an alphabet
+// once, and reset builds them for each new code.
+class HuffmanDecoder {
+    private static final int TABLE_BITS = 10; // Bits resolved by a single table lookup
+
+    private final int[] table = new int[1 << TABLE_BITS]; // Symbol and code length for each TABLE_BITS-bit prefix
+    private final int[] firstCode = new int[Huffman.MAX_CODE_LENGTH + 1]; // First canonical code of each length
+    private final int[] firstIndex = new int[Huffman.MAX_CODE_LENGTH + 1]; // Index of that code's symbol in sortedSymbols
+    private final int[] lengthCounts = new int[Huffman.MAX_CODE_LENGTH + 1]; // Number of codes of each length
+    private final int[] sortedSymbols; // Symbols in canonical code order
+
+    HuffmanDecoder(int[] codeLengths) {
+        this(codeLengths.length);
+        reset(codeLengths);
+    }
+
+    // A decoder for codes over the given number of symbols, reset must be called before decoding
+    HuffmanDecoder(int symbols) {
+        sortedSymbols = new int[symbols];
+    }
+
+    // Builds the tables for the code lengths, which must be for at most the number of symbols given
+    public void reset(int[] codeLengths) {
+        Arrays.fill(table, 0);
+        Arrays.fill(lengthCounts, 0);
+        for (int length : codeLengths) {
+            lengthCounts[length]++;
+        }
+        lengthCounts[0] = 0;
+
+        int code = 0;
+        int index = 0;
+        for (int length = 1; length <= Huffman.MAX_CODE_LENGTH; length++) {
+            firstCode[length] = code;
+            firstIndex[length] = index;
+            code = (code + lengthCounts[length]) << 1;
+            index += lengthCounts[length];
+        }
+
+        int[] nextIndex = firstIndex.clone();
+        int[] codes = Huffman.buildCanonicalCodes(codeLengths);
+        for (int symbol = 0; symbol < codeLengths.length; symbol++) {
+            int length = codeLengths[symbol];
+            if (length == 0) {
+                continue;
+            }
+            sortedSymbols[nextIndex[length]++] = symbol;
+
+            // Every table index starting with a short code maps to its symbol
+            if (length <= TABLE_BITS) {
+                int first = codes[symbol] << (TABLE_BITS - length);
+                Arrays.fill(table, first, first + (1 << (TABLE_BITS - length)), (length << 16) | symbol);
+            }
+        }
+    }
+
+    // Decodes the next symbol from the reader
+    public int decode(BitReader reader) {
+        int entry = table[reader.peek(TABLE_BITS)]; // Resolve up to TABLE_BITS bits at once
+        if (entry != 0) {
+            reader.consume(entry >>> 16);
+            return entry & 0xFFFF;
+        }
+
+        // Long code: try each longer length in canonical order
+        for (int length = TABLE_BITS + 1; length <= Huffman.MAX_CODE_LENGTH; length++) {
+            int offset = reader.peek(length) - firstCode[length];
+            if (offset < lengthCounts[length]) {
+                reader.consume(length);
+                return sortedSymbols[firstIndex[length] + offset];
+            }
+        }
+        throw new IllegalArgumentException("Invalid Huffman code");
+    }
+}
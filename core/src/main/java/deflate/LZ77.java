@@ -0,0 +1,425 @@
+package deflate;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// LZ77 class
+class LZ77 {
+    public static final int WINDOW_SIZE = 32767; // Maximum size for the sliding window
+    public static final int MAX_LENGTH = 1000; // Maximum length for the match
+    private static final int COUNT_BITS = 32; // Bits used to store the number of tags
+    public static final int MIN_MATCH = 3; // Shortest match worth a tag, also the hash chain key length
+    public static final int MAX_LONG_WINDOW = 1 << 28; // Largest window of the long-range mode, see LongRangeFinder
+    public static final int MAX_LONG_LENGTH = 1 << 16; // Maximum length of a long-range match tag
+
+    // Compression levels (1 = fastest, 9 = best ratio, 10 = optimal parsing)
+    public static final int MIN_LEVEL = 1;
+    public static final int ULTRA_LEVEL = 10; // Price-based optimal parse, see OptimalParser
+    public static final int MAX_LEVEL = ULTRA_LEVEL;
+    public static final int DEFAULT_LEVEL = 6;
+
+    // Match finder tuning per level, indexed by level (index 0 is unused)
+    private static final int[] GOOD_LENGTH = {0, 4, 4, 4, 4, 8, 8, 8, 32, 32, MAX_LENGTH}; // Reduce the search once a match this long is found
+    private static final int[] MAX_LAZY = {0, 0, 0, 0, 4, 16, 16, 32, 128, MAX_LENGTH, 0}; // Try a lazy match only below this length (0 = greedy)
+    private static final int[] NICE_LENGTH = {0, 8, 16, 32, 16, 32, 128, 128, 258, MAX_LENGTH, 258}; // Stop searching once a match this long is found
+    private static final int[] MAX_CHAIN = {0, 4, 8, 32, 16, 32, 128, 256, 1024, 4096, 1024}; // Maximum number of hash chain links to follow
+
+    private static final int HASH_BITS = 15; // Number of bits in the hash chain head table
+    private static final int HASH_SIZE = 1 << HASH_BITS;
+    private static final int HASH_MASK = HASH_SIZE - 1;
+    private static final int CHAIN_SIZE = WINDOW_SIZE + 1; // Chain links are kept for one window only
+    private static final int CHAIN_MASK = CHAIN_SIZE - 1;
+    // Reads 8 bytes of a byte[] at once, see matchLength
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    // Encodes the input data using LZ77 with the default compression level
+    public static List<Tag> encode(byte[] data) {
+        return encode(data, DEFAULT_LEVEL);
+    }
+
+    // Encodes the input data using LZ77 with the given compression level
+    public static List<Tag> encode(byte[] data, int level) {
+        return encode(data, 0, data.length, level);
+    }
+
+    // Encodes data[start..end) using LZ77, matches may refer back into the bytes before start
+    public static List<Tag> encode(byte[] data, int start, int end, int level) {
+        return encode(data, start, end, level, MAX_LENGTH);
+    }
+
+    // Encodes data[start..end) using LZ77 with matches no longer than maxLength
+    public static List<Tag> encode(byte[] data, int start, int end, int level, int maxLength) {
+        TagBuffer tags = new TagBuffer();
+        encode(data, start, end, level, maxLength, tags);
+        return tags.toList();
+    }
+
+    // Encodes data[start..end) using LZ77 into the buffer, replacing its contents
+    public static void encode(byte[] data, int start, int end, int level, int maxLength, TagBuffer result) {
+        encode(data, start, end, level, maxLength, result, new MatchFinder());
+    }
+
+    // Encodes data[start..end) into the buffer with a match finder that is reset and reused
+    public static void encode(byte[] data, int start, int end, int level, int maxLength, TagBuffer result,
+                              MatchFinder finder) {
+        encode(data, start, end, level, maxLength, result, finder, null);
+    }
+
+    // Encodes data[start..end) into the buffer, taking the long-range matches the finder found in the block, if
+    // one is given. The block is parsed as usual between them.
+    public static void encode(byte[] data, int start, int end, int level, int maxLength, TagBuffer result,
+                              MatchFinder finder, LongRangeFinder longRange) {
+        if (level < MIN_LEVEL || level > MAX_LEVEL) {
+            throw new IllegalArgumentException("Compression level must be between " + MIN_LEVEL + " and " + MAX_LEVEL);
+        }
+        if (maxLength < MIN_MATCH || maxLength > MAX_LENGTH) {
+            throw new IllegalArgumentException("Maximum match length must be between " + MIN_MATCH + " and " + MAX_LENGTH);
+        }
+        result.clear();
+        result.ensureCapacity(end - start); // At most one tag per byte
+        int longMatches = longRange != null ? longRange.count : 0; // Number of long-range matches in the block
+        if (level == ULTRA_LEVEL) {
+            int pos = start;
+            for (int m = 0; m < longMatches; m++) {
+                if (pos < longRange.starts[m]) {
+                    OptimalParser.parse(data, pos, longRange.starts[m], maxLength, result, finder);
+                }
+                addLongMatch(result, longRange.offsets[m], longRange.lengths[m]);
+                pos = longRange.starts[m] + longRange.lengths[m];
+            }
+            if (pos < end) {
+                OptimalParser.parse(data, pos, end, maxLength, result, finder);
+            }
+            return;
+        }
+
+        finder.reset(data, end, level, maxLength);
+        int pos = start;
+        int nextLong = 0; // Next long-range match, regular matches stop where it starts
+        finder.limit = longMatches > 0 ? longRange.starts[0] : end;
+
+        // Index the history in front of the block so matches can reach back into it
+        for (int i = Math.max(0, start - WINDOW_SIZE); i < start; i++) {
+            finder.insert(i);
+        }
+
+        if (pos < end) {
+            finder.find(pos, 0); // Find the best matching substring at the first position
+        }
+
+        // Loop through the data to find matches
+        while (pos < end) {
+            if (pos == finder.limit && nextLong < longMatches) {
+                int length = longRange.lengths[nextLong];
+                addLongMatch(result, longRange.offsets[nextLong], length);
+
+                // Only the end of the match can be reached by later regular matches
+                int nextPosition = pos + length;
+                for (int i = Math.max(pos, nextPosition - WINDOW_SIZE); i < nextPosition; i++) {
+                    finder.insert(i);
+                }
+                nextLong++;
+                finder.limit = nextLong < longMatches ? longRange.starts[nextLong] : end;
+                pos = nextPosition;
+                if (pos < end) {
+                    finder.find(pos, 0);
+                }
+                continue;
+            }
+
+            int matchLength = finder.matchLength;
+            int matchOffset = finder.matchOffset;
+
+            // Lazy matching: check whether the next position starts a longer match
+            if (matchLength > 0 && matchLength < MAX_LAZY[level] && pos + 1 < finder.limit) {
+                finder.insert(pos);
+                finder.find(pos + 1, matchLength);
+                if (finder.matchLength > matchLength) {
+                    result.addLiteral(data[pos]); // Emit a literal and take the better match
+                    pos++;
+                    continue;
+                }
+            } else {
+                finder.insert(pos);
+            }
+
+            if (matchLength == 0) {
+                result.addLiteral(data[pos]); // No match, emit the byte itself
+                matchLength = 1;
+            } else {
+                result.addMatch(matchOffset, matchLength); // Add the match to the result
+            }
+
+            // Index the rest of the covered positions so later matches can refer to them
+            int nextPosition = pos + matchLength;
+            for (int i = pos + 1; i < nextPosition; i++) {
+                finder.insert(i);
+            }
+
+            pos = nextPosition; // Move the position forward
+            if (pos < end) {
+                finder.find(pos, 0);
+            }
+        }
+    }
+
+    // Adds a long-range match, split into tags of at most MAX_LONG_LENGTH bytes, none shorter than MIN_MATCH
+    private static void addLongMatch(TagBuffer result, int offset, int length) {
+        while (length > 0) {
+            int tagLength = Math.min(length, MAX_LONG_LENGTH);
+            if (length - tagLength > 0 && length - tagLength < MIN_MATCH) {
+                tagLength -= MIN_MATCH;
+            }
+            result.addMatch(offset, tagLength);
+            length -= tagLength;
+        }
+    }
+
+    // Counts how many bytes of data match starting at the two positions, up to maxLength. Eight bytes are
+    // compared at a time as longs: the lowest set bit of their XOR is in the first byte that differs, as the
+    // longs are read little-endian. Both positions plus maxLength must be within the data.
+    static int matchLength(byte[] data, int first, int second, int maxLength) {
+        int length = 0;
+        while (length <= maxLength - Long.BYTES) {
+            long difference = (long) LONGS.get(data, first + length) ^ (long) LONGS.get(data, second + length);
+            if (difference != 0) {
+                return length + (Long.numberOfTrailingZeros(difference) >>> 3);
+            }
+            length += Long.BYTES;
+        }
+        while (length < maxLength && data[first + length] == data[second + length]) {
+            length++;
+        }
+        return length;
+    }
+
+    // Hash chain match finder over the sliding window. The hash tables are allocated once and cleared by reset,
+    // so a finder can be kept and reused for every block.
+    static class MatchFinder {
+        byte[] data; // Data being encoded
+        int end; // End of the data being encoded
+        int limit; // End of the matches find reports, before a long-range match or at the end
+        int goodLength;
+        int niceLength;
+        int maxLength; // Longest match the finder reports
+        int maxChain;
+
+        final int[] head = new int[HASH_SIZE]; // Most recent position for each 3-byte hash
+        final int[] prev = new int[CHAIN_SIZE]; // Previous position with the same hash, per window slot
+
+        int matchLength; // Length of the last match found
+        int matchOffset; // Offset of the last match found
+
+        // Starts over on new data. Only the heads are cleared: a chain link is always written by insert before
+        // it can be followed.
+        void reset(byte[] data, int end, int level, int maxLength) {
+            this.data = data;
+            this.end = end;
+            this.limit = end;
+            this.maxLength = maxLength;
+            this.goodLength = GOOD_LENGTH[level];
+            this.niceLength = Math.min(NICE_LENGTH[level], maxLength);
+            this.maxChain = MAX_CHAIN[level];
+            Arrays.fill(head, -1);
+        }
+
+        // Adds the position to the hash chains
+        void insert(int pos) {
+            if (pos + MIN_MATCH <= end) {
+                int h = hash3(pos);
+                prev[pos & CHAIN_MASK] = head[h];
+                head[h] = pos;
+            }
+        }
+
+        // Finds the longest match at the position that beats the given length
+        void find(int pos, int prevLength) {
+            int maxLength = Math.min(this.maxLength, limit - pos); // The match can't run past the limit
+            int windowStart = Math.max(0, pos - WINDOW_SIZE); // Start of the sliding window
+            int chain = prevLength >= goodLength ? maxChain >> 2 : maxChain; // Search less when we already have a good match
+            int bestLength = 0;
+            int bestOffset = 0;
+
+            // Follow the chain of earlier positions sharing the same 3-byte prefix
+            if (maxLength >= MIN_MATCH) {
+                int candidate = head[hash3(pos)];
+                while (candidate >= windowStart && chain-- > 0) {
+                    if (data[candidate + bestLength] == data[pos + bestLength]) {
+                        int length = matchLength(candidate, pos, maxLength);
+                        if (length > bestLength) { // If this match is longer, update the offset and length
+                            bestLength = length;
+                            bestOffset = pos - candidate;
+                            if (length >= niceLength || length == maxLength) {
+                                break; // Good enough, stop searching
+                            }
+                        }
+                    }
+                    candidate = prev[candidate & CHAIN_MASK];
+                }
+            }
+
+            if (bestLength < MIN_MATCH) {
+                bestLength = 0; // Too short to pay for a match tag
+                bestOffset = 0;
+            }
+
+            matchLength = bestLength;
+            matchOffset = bestOffset;
+        }
+
+        // Collects the matches at the position: each one longer than the one before, at the nearest offset
+        // that reaches its length. Returns the number of matches stored in lengths and offsets.
+        int findAll(int pos, int[] lengths, int[] offsets) {
+            int maxLength = Math.min(this.maxLength, end - pos);
+            int windowStart = Math.max(0, pos - WINDOW_SIZE);
+            int chain = maxChain;
+            int count = 0;
+            int bestLength = MIN_MATCH - 1;
+
+            if (maxLength >= MIN_MATCH) {
+                int candidate = head[hash3(pos)];
+                while (candidate >= windowStart && chain-- > 0 && count < lengths.length) {
+                    if (data[candidate + bestLength] == data[pos + bestLength]) {
+                        int length = matchLength(candidate, pos, maxLength);
+                        if (length > bestLength) {
+                            bestLength = length;
+                            lengths[count] = length;
+                            offsets[count++] = pos - candidate;
+                            if (length >= niceLength || length == maxLength) {
+                                break;
+                            }
+                        }
+                    }
+                    candidate = prev[candidate & CHAIN_MASK];
+                }
+            }
+            return count;
+        }
+
+        // Counts how many bytes match starting at the two positions
+        private int matchLength(int candidate, int pos, int maxLength) {
+            return LZ77.matchLength(data, candidate, pos, maxLength);
+        }
+
+        private int hash3(int pos) {
+            return (((data[pos] & 0xFF) << 10) ^ ((data[pos + 1] & 0xFF) << 5) ^ (data[pos + 2] & 0xFF)) & HASH_MASK;
+        }
+
+    }
+
+    // Packs the list of tags into a bit stream, preceded by the number of tags
+    public static byte[] convertTagsToBytes(List<Tag> tags) {
+        BitWriter writer = new BitWriter(tags.size() * 2);
+        writer.writeBits(tags.size(), COUNT_BITS);
+
+        for (Tag tag : tags) {
+            tag.writeTo(writer); // Append the tag's bits
+        }
+
+        return writer.toByteArray(); // Return the bytes representing the tags
+    }
+
+    // Packs the tags in the buffer into a bit stream, preceded by the number of tags
+    public static byte[] convertTagsToBytes(TagBuffer tags) {
+        BitWriter writer = new BitWriter(tags.size() * 2);
+        writer.writeBits(tags.size(), COUNT_BITS);
+
+        for (int i = 0; i < tags.size(); i++) {
+            if (tags.isLiteral(i)) {
+                Tag.writeLiteral(writer, tags.getLiteral(i));
+            } else {
+                Tag.writeMatch(writer, tags.getOffset(i), tags.getLength(i));
+            }
+        }
+
+        return writer.toByteArray();
+    }
+
+    // Unpacks a bit stream written by convertTagsToBytes back into a list of tags
+    public static List<Tag> convertBytesToTags(byte[] data) {
+        BitReader reader = new BitReader(data, 0, data.length);
+        int count = (int) reader.readBits(COUNT_BITS); // Read the number of tags
+        if (count < 0) {
+            throw new IllegalArgumentException("Corrupt tag count");
+        }
+
+        List<Tag> tags = new ArrayList<>(Math.min(count, data.length * 8));
+        for (int i = 0; i < count; i++) {
+            tags.add(Tag.readFrom(reader)); // Read the next tag
+        }
+
+        return tags; // Return the list of tags
+    }
+
+    // Decompresses the list of tags into the original data
+    public static byte[] decompressFromTags(List<Tag> tags) {
+        int size = 0;
+        for (Tag tag : tags) {
+            size += tag.isLiteral() ? 1 : tag.getLength(); // Number of bytes the tag covers
+        }
+
+        byte[] decompressedData = new byte[size];
+        decompressFromTags(tags, decompressedData, 0);
+
+        return decompressedData; // Return the fully decompressed data
+    }
+
+    // Decompresses the tags into the buffer starting at pos, the bytes before pos are the history
+    public static int decompressFromTags(List<Tag> tags, byte[] buffer, int pos) {
+        for (Tag tag : tags) {
+            if (tag.isLiteral()) {
+                buffer[pos++] = tag.getNext(); // Append the literal byte
+                continue;
+            }
+            copyMatch(buffer, pos, tag.getOffset(), tag.getLength());
+            pos += tag.getLength();
+        }
+
+        return pos; // Return the position after the decompressed data
+    }
+
+    // Decompresses the tags in the buffer into the window starting at pos, the bytes before pos are the history.
+    // The data may not run past limit. Returns the position after the decompressed data.
+    public static int decompressFromTags(TagBuffer tags, byte[] buffer, int pos, int limit) {
+        for (int i = 0; i < tags.size(); i++) {
+            if (pos >= limit) {
+                throw new IllegalArgumentException("Corrupt tag");
+            }
+            if (tags.isLiteral(i)) {
+                buffer[pos++] = tags.getLiteral(i);
+                continue;
+            }
+
+            int offset = tags.getOffset(i);
+            int length = tags.getLength(i);
+            if (offset > pos || length > limit - pos) {
+                throw new IllegalArgumentException("Corrupt tag");
+            }
+            copyMatch(buffer, pos, offset, length);
+            pos += length;
+        }
+
+        return pos;
+    }
+
+    // Copies length bytes from offset bytes back to pos. A match longer than its offset repeats its first
+    // offset bytes, so it is copied in chunks that double as the repeated part grows.
+    private static void copyMatch(byte[] buffer, int pos, int offset, int length) {
+        int start = pos - offset;
+        if (offset >= length) {
+            System.arraycopy(buffer, start, buffer, pos, length);
+            return;
+        }
+
+        int end = pos + length;
+        while (pos < end) {
+            int chunk = Math.min(pos - start, end - pos);
+            System.arraycopy(buffer, start, buffer, pos, chunk);
+            pos += chunk;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package deflate;
+
+import java.util.Arrays;
+import java.util.Random;
+
+// Finds long matches far back in a large window, like zstd's long distance matching. A gear hash rolls over
+// the last MIN_MATCH bytes, and the positions where some of its bits are zero are anchors: they depend only on
+// the bytes before them, so repeated text has its anchors at the same places in every copy. Anchors are kept
+// in a table indexed by the hash, and an anchor that finds an earlier one with the same bytes is extended in
+// both directions into a match. The table is kept for the blocks of a stream and moved along when the window
+// slides, so the window is indexed once however many blocks refer to it.
+class LongRangeFinder {
+    public static final int MIN_MATCH = 64; // Shortest long-range match, also the number of bytes the hash covers
+    private static final int TABLE_BITS = 20; // Bits of the anchor table index
+    private static final int MIN_ANCHOR_BITS = 4; // An anchor at least every 16 positions on average
+    private static final long[] GEAR = gearTable();
+
+    private final int[] table = new int[1 << TABLE_BITS]; // Position after the latest anchor with each hash, or -1
+    private int windowSize; // Farthest offset of a match
+    private long anchorMask; // Hash bits that are zero at an anchor, below the table index bits
+    private long hash; // Gear hash of the bytes before position
+    private int hashStart; // Position where the hash started, anchors need MIN_MATCH bytes after it
+    private int position = -1; // End of the indexed data, -1 before the first block
+
+    // Long-range matches found by the last find, in order
+    int count;
+    int[] starts = new int[16];
+    int[] lengths = new int[16];
+    int[] offsets = new int[16];
+
+    // Starts a new stream with the window size, the farthest a match may reach back
+    void reset(int windowSize) {
+        if (windowSize < MIN_MATCH || windowSize > LZ77.MAX_LONG_WINDOW) {
+            throw new IllegalArgumentException("Window size must be between " + MIN_MATCH + " and " + LZ77.MAX_LONG_WINDOW);
+        }
+        this.windowSize = windowSize;
+
+        // About one anchor per table entry over the window
+        int windowBits = 32 - Integer.numberOfLeadingZeros(windowSize - 1);
+        int anchorBits = Math.max(MIN_ANCHOR_BITS, windowBits - TABLE_BITS);
+        anchorMask = ((1L << anchorBits) - 1) << (64 - TABLE_BITS - anchorBits);
+        Arrays.fill(table, -1);
+        position = -1;
+    }
+
+    // Moves the indexed positions back by the distance the data moved in the window
+    void slide(int distance) {
+        if (distance == 0) {
+            return;
+        }
+        for (int i = 0; i < table.length; i++) {
+            table[i] = table[i] >= distance ? table[i] - distance : -1;
+        }
+        position -= distance;
+        hashStart -= distance;
+    }
+
+    // Indexes data up to end and collects the long-range matches in data[start..end), returns their number.
+    // The data before start must be what the earlier calls saw, moved by slide, unless this is the first call.
+    // Every block of the stream must be passed in, even if it is stored, to keep the index complete.
+    int find(byte[] data, int start, int end) {
+        if (position != start) {
+            // First block: index the history in front of it, such as a dictionary
+            position = Math.max(0, start - windowSize);
+            hashStart = position;
+            hash = 0;
+        }
+
+        count = 0;
+        int matchEnd = start; // Matches may not overlap, nor begin before the block
+        long hash = this.hash;
+        for (int pos = position; pos < end; pos++) {
+            hash = (hash << 1) + GEAR[data[pos] & 0xFF];
+            if ((hash & anchorMask) != 0 || pos + 1 - hashStart < MIN_MATCH) {
+                continue;
+            }
+
+            int anchor = pos + 1; // The hash covers the MIN_MATCH bytes before the anchor
+            int index = (int) (hash >>> (64 - TABLE_BITS));
+            int candidate = table[index];
+            table[index] = anchor;
+            if (anchor <= start || anchor <= matchEnd || candidate < 0 || anchor - candidate > windowSize) {
+                continue;
+            }
+
+            // Extend the match over the anchor both ways, the hash may also have collided
+            int backward = 0;
+            int backwardLimit = Math.min(anchor - matchEnd, candidate);
+            while (backward < backwardLimit && data[candidate - backward - 1] == data[anchor - backward - 1]) {
+                backward++;
+            }
+            int forward = LZ77.matchLength(data, candidate, anchor, end - anchor);
+            if (backward + forward < MIN_MATCH) {
+                continue;
+            }
+
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                lengths = Arrays.copyOf(lengths, count * 2);
+                offsets = Arrays.copyOf(offsets, count * 2);
+            }
+            starts[count] = anchor - backward;
+            lengths[count] = backward + forward;
+            offsets[count++] = anchor - candidate;
+            matchEnd = anchor + forward;
+        }
+        this.hash = hash;
+        position = end;
+        return count;
+    }
+
+    // Random values for each byte, fixed so that the anchors don't change between runs
+    private static long[] gearTable() {
+        Random random = new Random(0x6C6F6E67L);
+        long[] gear = new long[256];
+        for (int i = 0; i < gear.length; i++) {
+            gear[i] = random.nextLong();
+        }
+        return gear;
+    }
+}
@@ -0,0 +1,63 @@
+package deflate;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+// Reads a bit stream least significant bit first, the bit order used by deflate
+class LsbBitReader {
+    private final InputStream in;
+    private long bitBuffer; // Buffered bits, the next one in the lowest position
+    private int bitCount; // Number of buffered bits
+    private int paddingBits; // Zero bits added past the end of the input
+
+    LsbBitReader(InputStream in) {
+        this.in = in;
+    }
+
+    // Returns the next count bits (0 to 32) without consuming them, zeros past the end
+    public int peekBits(int count) throws IOException {
+        while (bitCount < count) {
+            int b = in.read();
+            if (b < 0) {
+                b = 0;
+                paddingBits += 8;
+            }
+            bitBuffer |= (long) b << bitCount;
+            bitCount += 8;
+        }
+        return (int) (bitBuffer & ((1L << count) - 1));
+    }
+
+    // Skips count bits that were already peeked
+    public void consume(int count) throws IOException {
+        bitBuffer >>>= count;
+        bitCount -= count;
+        if (bitCount < paddingBits) {
+            throw new EOFException("Unexpected end of deflate stream");
+        }
+    }
+
+    // Reads count bits (0 to 32) as an unsigned number
+    public int readBits(int count) throws IOException {
+        int value = peekBits(count);
+        consume(count);
+        return value;
+    }
+
+    // Skips to the next byte boundary
+    public void alignToByte() throws IOException {
+        consume(bitCount & 7);
+    }
+
+    // Reads a byte at a byte boundary, or returns -1 at the end of the input
+    public int readAlignedByte() throws IOException {
+        if (bitCount - paddingBits >= 8) {
+            return readBits(8);
+        }
+        if (paddingBits > 0) {
+            return -1; // Only padding is left, the input has ended
+        }
+        return in.read(); // Nothing is buffered, read straight from the input
+    }
+}
@@ -0,0 +1,42 @@
+package deflate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+// Writes a bit stream least significant bit first, the bit order used by deflate
+class LsbBitWriter {
+    private final OutputStream out;
+    private long bitBuffer; // Pending bits, the oldest in the lowest position
+    private int bitCount; // Number of pending bits
+
+    LsbBitWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    // Appends the low count bits (0 to 32) of the value
+    public void writeBits(long value, int count) throws IOException {
+        bitBuffer |= (value & ((1L << count) - 1)) << bitCount;
+        bitCount += count;
+        while (bitCount >= 8) {
+            out.write((int) bitBuffer);
+            bitBuffer >>>= 8;
+            bitCount -= 8;
+        }
+    }
+
+    // Pads the current byte with zero bits
+    public void alignToByte() throws IOException {
+        if (bitCount > 0) {
+            writeBits(0, 8 - bitCount);
+        }
+    }
+
+    // Writes whole bytes, the stream must be aligned to a byte
+    public void writeBytes(byte[] data, int offset, int length) throws IOException {
+        out.write(data, offset, length);
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+}
@@ -0,0 +1,358 @@
+package deflate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Scanner;
+
+public class Main {
+    public static void main(String[] args) {
+        if (args.length > 0) {
+            System.exit(CommandLine.run(args)); // Non-interactive mode, see CommandLine
+        }
+
+        Scanner sc = new Scanner(System.in);
+        String choice;
+        String sourceFile, resultFile;
+
+        while (true) {
+            System.out.println("Enter command (comp, decomp, scomp, range, pcomp, pdecomp, gzip, gunzip, size, equal, about, exit):");
+            choice = sc.next().trim();
+
+            switch (choice) {
+                case "comp":
+                    System.out.print("source file name: ");
+                    sourceFile = sc.next().trim();
+                    System.out.print("archive name: ");
+                    resultFile = sc.next().trim();
+                    System.out.print("compression level (" + LZ77.MIN_LEVEL + "-" + LZ77.MAX_LEVEL + "): ");
+                    String level = sc.next().trim();
+                    try {
+                        compress(sourceFile, resultFile, Integer.parseInt(level));
+                    } catch (IllegalArgumentException e) {
+                        System.out.println("Invalid compression level: " + level);
+                    }
+                    break;
+
+                case "decomp":
+                    System.out.print("archive name: ");
+                    sourceFile = sc.next().trim();
+                    System.out.print("file name: ");
+                    resultFile = sc.next().trim();
+                    decompress(sourceFile, resultFile);
+                    break;
+
+                case "scomp":
+                    System.out.print("source file name: ");
+                    sourceFile = sc.next().trim();
+                    System.out.print("archive name: ");
+                    resultFile = sc.next().trim();
+                    System.out.print("compression level (" + LZ77.MIN_LEVEL + "-" + LZ77.MAX_LEVEL + "): ");
+                    String seekableLevel = sc.next().trim();
+                    try {
+                        compressSeekable(sourceFile, resultFile, Integer.parseInt(seekableLevel));
+                    } catch (IllegalArgumentException e) {
+                        System.out.println("Invalid compression level: " + seekableLevel);
+                    }
+                    break;
+
+                case "range":
+                    System.out.print("archive name: ");
+                    sourceFile = sc.next().trim();
+                    System.out.print("offset: ");
+                    String offset = sc.next().trim();
+                    System.out.print("length: ");
+                    String length = sc.next().trim();
+                    System.out.print("file name: ");
+                    resultFile = sc.next().trim();
+                    try {
+                        readRange(sourceFile, Long.parseLong(offset), Integer.parseInt(length), resultFile);
+                    } catch (IllegalArgumentException e) {
+                        System.out.println("Invalid range: " + e.getMessage());
+                    }
+                    break;
+
+                case "pcomp":
+                    System.out.print("source file name: ");
+                    sourceFile = sc.next().trim();
+                    System.out.print("archive name: ");
+                    resultFile = sc.next().trim();
+                    System.out.print("compression level (" + LZ77.MIN_LEVEL + "-" + LZ77.MAX_LEVEL + "): ");
+                    String parallelLevel = sc.next().trim();
+                    System.out.print("threads: ");
+                    String threads = sc.next().trim();
+                    try {
+                        compressParallel(sourceFile, resultFile, Integer.parseInt(parallelLevel),
+                                Integer.parseInt(threads), Archive.DEFAULT_BLOCK_SIZE);
+                    } catch (IllegalArgumentException e) {
+                        System.out.println("Invalid argument: " + e.getMessage());
+                    }
+                    break;
+
+                case "pdecomp":
+                    System.out.print("archive name: ");
+                    sourceFile = sc.next().trim();
+                    System.out.print("file name: ");
+                    resultFile = sc.next().trim();
+                    System.out.print("threads: ");
+                    String decompressThreads = sc.next().trim();
+                    try {
+                        decompressParallel(sourceFile, resultFile, Integer.parseInt(decompressThreads));
+                    } catch (IllegalArgumentException e) {
+                        System.out.println("Invalid argument: " + e.getMessage());
+                    }
+                    break;
+
+                case "gzip":
+                    System.out.print("source file name: ");
+                    sourceFile = sc.next().trim();
+                    System.out.print("archive name: ");
+                    resultFile = sc.next().trim();
+                    System.out.print("compression level (" + LZ77.MIN_LEVEL + "-" + LZ77.MAX_LEVEL + "): ");
+                    String gzipLevel = sc.next().trim();
+                    try {
+                        gzip(sourceFile, resultFile, Integer.parseInt(gzipLevel));
+                    } catch (IllegalArgumentException e) {
+                        System.out.println("Invalid compression level: " + gzipLevel);
+                    }
+                    break;
+
+                case "gunzip":
+                    System.out.print("archive name: ");
+                    sourceFile = sc.next().trim();
+                    System.out.print("file name: ");
+                    resultFile = sc.next().trim();
+                    gunzip(sourceFile, resultFile);
+                    break;
+
+                case "size":
+                    System.out.print("file name: ");
+                    sourceFile = sc.next().trim();
+                    size(sourceFile);
+                    break;
+
+                case "equal":
+                    System.out.print("first file name: ");
+                    String firstFile = sc.next().trim();
+                    System.out.print("second file name: ");
+                    String secondFile = sc.next().trim();
+                    System.out.println(equal(firstFile, secondFile));
+                    break;
+
+                case "about":
+                    about();
+                    break;
+
+                case "exit":
+                    sc.close();
+                    return;
+
+                default:
+                    System.out.println("Unknown command. Try again.");
+                    break;
+            }
+        }
+    }
+
+    public static void compress(String sourceFile, String resultFile) {
+        compress(sourceFile, resultFile, LZ77.DEFAULT_LEVEL);
+    }
+
+    public static void compress(String sourceFile, String resultFile, int level) {
+        if (level < LZ77.MIN_LEVEL || level > LZ77.MAX_LEVEL) {
+            throw new IllegalArgumentException("Compression level must be between " + LZ77.MIN_LEVEL + " and " + LZ77.MAX_LEVEL);
+        }
+
+        try {
+            compressFile(Paths.get(sourceFile), Paths.get(resultFile), level);
+        } catch (IOException e) {
+            System.err.println("Error during compression: " + e.getMessage());
+            return;
+        }
+
+        System.out.println("Compression complete.");
+    }
+
+    // Compresses the data in memory using the block stream format
+    public static byte[] compress(byte[] data, int level) {
+        Compressor compressor = Compressor.acquire();
+        try {
+            return compressor.compress(data, level);
+        } finally {
+            compressor.release();
+        }
+    }
+
+    public static void decompress(String sourceFile, String resultFile) {
+        try {
+            decompressFile(Paths.get(sourceFile), Paths.get(resultFile));
+        } catch (IOException e) {
+            System.err.println("Error during decompression: " + e.getMessage());
+            return;
+        }
+
+        System.out.println("Decompression complete.");
+    }
+
+    // Streams the source file through the compressor block by block
+    static void compressFile(Path sourceFile, Path resultFile, int level) throws IOException {
+        compressFile(sourceFile, resultFile, level, null);
+    }
+
+    // Streams the source file through the compressor, with the dictionary as initial history if not null
+    static void compressFile(Path sourceFile, Path resultFile, int level, Dictionary dictionary) throws IOException {
+        compressFile(sourceFile, resultFile, level, dictionary, LZ77.WINDOW_SIZE);
+    }
+
+    // Streams the source file through the compressor with a long-range window if windowSize is above
+    // LZ77.WINDOW_SIZE. The window is cut down to the file size, a larger one would find nothing more.
+    static void compressFile(Path sourceFile, Path resultFile, int level, Dictionary dictionary, int windowSize)
+            throws IOException {
+        int fileWindow = (int) Math.min(windowSize, Math.max(Files.size(sourceFile), LZ77.WINDOW_SIZE));
+        try (InputStream in = new ReadAheadInputStream(sourceFile);
+             DeflateOutputStream out = new DeflateOutputStream(new WriteBehindOutputStream(resultFile), level,
+                     Archive.DEFAULT_BLOCK_SIZE, false, dictionary, fileWindow)) {
+            in.transferTo(out);
+        }
+    }
+
+    // Streams the archive through the decompressor block by block
+    static void decompressFile(Path sourceFile, Path resultFile) throws IOException {
+        decompressFile(sourceFile, resultFile, null);
+    }
+
+    // Streams the archive through the decompressor, the dictionary is needed if the archive was made with one
+    static void decompressFile(Path sourceFile, Path resultFile, Dictionary dictionary) throws IOException {
+        try (DeflateInputStream in = new DeflateInputStream(new ReadAheadInputStream(sourceFile), dictionary);
+             OutputStream out = new WriteBehindOutputStream(resultFile)) {
+            in.transferTo(out);
+        }
+    }
+
+    // Compresses the file into independent blocks that can be decompressed on their own
+    public static void compressSeekable(String sourceFile, String resultFile, int level) {
+        try (InputStream in = new MappedInputStream(Paths.get(sourceFile));
+             DeflateOutputStream out = new DeflateOutputStream(new ChannelOutputStream(Paths.get(resultFile)), level,
+                     Archive.DEFAULT_BLOCK_SIZE, true)) {
+            in.transferTo(out);
+        } catch (IOException e) {
+            System.err.println("Error during compression: " + e.getMessage());
+            return;
+        }
+
+        System.out.println("Compression complete.");
+    }
+
+    // Decompresses length bytes at the offset, decoding only the blocks the range needs
+    public static void readRange(String sourceFile, long offset, int length, String resultFile) {
+        try (OutputStream out = new ChannelOutputStream(Paths.get(resultFile))) {
+            out.write(SeekableArchive.readRange(Paths.get(sourceFile), null, offset, length));
+        } catch (IOException e) {
+            System.err.println("Error during decompression: " + e.getMessage());
+            return;
+        }
+
+        System.out.println("Decompression complete.");
+    }
+
+    // Compresses the file with blocks spread over several threads
+    public static void compressParallel(String sourceFile, String resultFile, int level, int threads, int blockSize) {
+        try (InputStream in = new MappedInputStream(Paths.get(sourceFile));
+             OutputStream out = new ChannelOutputStream(Paths.get(resultFile))) {
+            ParallelDeflate.compress(in, out, level, threads, blockSize, true);
+        } catch (IOException e) {
+            System.err.println("Error during compression: " + e.getMessage());
+            return;
+        }
+
+        System.out.println("Compression complete.");
+    }
+
+    // Decompresses the archive with blocks spread over several threads
+    public static void decompressParallel(String sourceFile, String resultFile, int threads) {
+        try (OutputStream out = new ChannelOutputStream(Paths.get(resultFile))) {
+            ParallelDeflate.decompress(Paths.get(sourceFile), out, threads);
+        } catch (IOException e) {
+            System.err.println("Error during decompression: " + e.getMessage());
+            return;
+        }
+
+        System.out.println("Decompression complete.");
+    }
+
+    // Compresses the file into a standard gzip archive
+    public static void gzip(String sourceFile, String resultFile, int level) {
+        try (InputStream in = new MappedInputStream(Paths.get(sourceFile));
+             OutputStream out = new ChannelOutputStream(Paths.get(resultFile))) {
+            StandardDeflate.compress(in, out, level, StandardDeflate.FORMAT_GZIP);
+        } catch (IOException e) {
+            System.err.println("Error during compression: " + e.getMessage());
+            return;
+        }
+
+        System.out.println("Compression complete.");
+    }
+
+    // Decompresses a gzip, zlib or raw deflate archive
+    public static void gunzip(String sourceFile, String resultFile) {
+        try (InputStream in = new MappedInputStream(Paths.get(sourceFile));
+             OutputStream out = new ChannelOutputStream(Paths.get(resultFile))) {
+            StandardDeflate.decompress(in, out);
+        } catch (IOException e) {
+            System.err.println("Error during decompression: " + e.getMessage());
+            return;
+        }
+
+        System.out.println("Decompression complete.");
+    }
+
+    // Decompresses an in-memory archive in the block stream format
+    public static byte[] decompress(byte[] compressedData) throws IOException {
+        Decompressor decompressor = Decompressor.acquire();
+        try {
+            return decompressor.decompress(compressedData);
+        } finally {
+            decompressor.release();
+        }
+    }
+
+    public static void size(String sourceFile) {
+        try {
+            System.out.println("size: " + Files.size(Paths.get(sourceFile)) + " bytes");
+        } catch (IOException ex) {
+            System.out.println("Error getting file size: " + ex.getMessage());
+        }
+    }
+
+    // Compares the files a mapped window at a time; files of different sizes differ without being read
+    public static boolean equal(String firstFile, String secondFile) {
+        try (FileChannel first = FileChannel.open(Paths.get(firstFile), StandardOpenOption.READ);
+             FileChannel second = FileChannel.open(Paths.get(secondFile), StandardOpenOption.READ)) {
+            long size = first.size();
+            if (size != second.size()) {
+                return false;
+            }
+            for (long offset = 0; offset < size; offset += MappedInputStream.MAP_WINDOW) {
+                long length = Math.min(MappedInputStream.MAP_WINDOW, size - offset);
+                if (first.map(FileChannel.MapMode.READ_ONLY, offset, length)
+                        .mismatch(second.map(FileChannel.MapMode.READ_ONLY, offset, length)) >= 0) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (IOException ex) {
+            System.out.println("Error comparing files: " + ex.getMessage());
+            return false;
+        }
+    }
+
+    public static void about() {
+        System.out.println("Developed by RTU student Daniels Stulpe");
+    }
+
+}
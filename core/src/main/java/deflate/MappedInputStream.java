@@ -0,0 +1,84 @@
+package deflate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+// Input stream over a file that is memory-mapped one window at a time, so the data is read
+// straight from the page cache and files larger than 2 GB stay addressable
+class MappedInputStream extends InputStream {
+    public static final int MAP_WINDOW = 1 << 26; // Bytes mapped at a time
+
+    private final FileChannel channel;
+    private final long size; // File size when the stream was opened
+    private long mapped = 0; // File offset of the end of the current window
+    private ByteBuffer window = ByteBuffer.allocate(0); // Mapped part of the file being read
+
+    public MappedInputStream(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.size = channel.size();
+    }
+
+    @Override
+    public int read() throws IOException {
+        return nextWindow() ? window.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+        if (len == 0) {
+            return 0;
+        }
+        if (!nextWindow()) {
+            return -1;
+        }
+
+        int count = Math.min(len, window.remaining());
+        window.get(b, off, count);
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return (int) Math.min(Integer.MAX_VALUE, window.remaining() + size - mapped);
+    }
+
+    // Hands the mapped windows to a compressor without copying them through a transfer buffer
+    @Override
+    public long transferTo(OutputStream out) throws IOException {
+        if (!(out instanceof DeflateOutputStream)) {
+            return super.transferTo(out);
+        }
+
+        long count = 0;
+        while (nextWindow()) {
+            count += window.remaining();
+            ((DeflateOutputStream) out).write(window);
+        }
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // Maps the next part of the file once the current window is used up, returns false at the end
+    private boolean nextWindow() throws IOException {
+        while (!window.hasRemaining()) {
+            if (mapped >= size) {
+                return false;
+            }
+            long length = Math.min(MAP_WINDOW, size - mapped);
+            window = channel.map(FileChannel.MapMode.READ_ONLY, mapped, length);
+            mapped += length;
+        }
+        return true;
+    }
+}
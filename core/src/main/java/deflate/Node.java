@@ -0,0 +1,35 @@
+package deflate;
+
+// Node class for Huffman tree
+class Node implements Comparable<Node> {
+    int frequency; // Frequency of the node
+    int value; // Symbol value of the node
+    Node left; // Left child
+    Node right; // Right child
+
+    // Constructor for leaf nodes with a symbol value
+    public Node(int frequency, int value) {
+        this.frequency = frequency;
+        this.value = value;
+        this.left = null; // No children
+        this.right = null; // No children
+    }
+
+    // Constructor for internal nodes with child nodes
+    public Node(int frequency, Node left, Node right) {
+        this.frequency = frequency;
+        this.left = left;
+        this.right = right;
+    }
+
+    // Check if the node is a leaf
+    public boolean isLeaf() {
+        return left == null && right == null; // Leaf nodes have no children
+    }
+
+    // Compare the frequency of nodes for priority queue ordering
+    @Override
+    public int compareTo(Node other) {
+        return Integer.compare(this.frequency, other.frequency); // Order by frequency
+    }
+}
@@ -0,0 +1,192 @@
+package deflate;
+
+import java.util.Arrays;
+
+// Optimal parsing for the ultra level: instead of taking the longest match greedily or lazily, every
+// position's matches are collected and the cheapest sequence of tags is found as a shortest path, where
+// position i + length is reached from position i at the price of the tag. Prices come from the
+// statistics of the previous parse, the way the token Huffman codes will charge them, and the parse is
+// repeated with the new statistics while the coded block gets smaller.
+class OptimalParser {
+    private static final int MAX_MATCHES = 32; // Matches collected per position
+    private static final int LEVEL = LZ77.ULTRA_LEVEL;
+    private static final int MAX_PASSES = 4; // Parses with updated prices
+    private static final int PRICE_BITS = 4; // Prices are in 1/16 bits
+
+    // Parses data[start..end) into the cheapest sequence of tags and appends them to the buffer, matches may
+    // refer back into the bytes before start. The match finder is reset and reused.
+    public static void parse(byte[] data, int start, int end, int maxLength, TagBuffer tags, LZ77.MatchFinder finder) {
+        Matches matches = new Matches(data, start, end, maxLength, finder);
+
+        // The best lazy parse gives the first statistics
+        TagBuffer best = new TagBuffer();
+        LZ77.encode(data, start, end, LZ77.ULTRA_LEVEL - 1, maxLength, best, finder);
+        int bestSize = TokenCoder.encode(best, null).length;
+
+        TagBuffer parsed = new TagBuffer();
+        for (int pass = 0; pass < MAX_PASSES; pass++) {
+            parsed.clear();
+            matches.shortestPath(data, start, new Prices(best), parsed);
+            int size = TokenCoder.encode(parsed, null).length;
+            if (size >= bestSize) {
+                break;
+            }
+            TagBuffer swap = best;
+            best = parsed;
+            parsed = swap;
+            bestSize = size;
+        }
+
+        for (int i = 0; i < best.size(); i++) {
+            if (best.isLiteral(i)) {
+                tags.addLiteral(best.getLiteral(i));
+            } else {
+                tags.addMatch(best.getOffset(i), best.getLength(i));
+            }
+        }
+    }
+
+    // Price of each literal, length code and offset code: -log2 of its frequency in a parse
+    private static class Prices {
+        final int[] literalLength = new int[TokenCoder.LITERAL_LENGTH_SYMBOLS];
+        final int[] offset = new int[TokenCoder.OFFSET_CODES];
+
+        Prices(TagBuffer tags) {
+            int[] literalFrequencies = new int[TokenCoder.LITERAL_LENGTH_SYMBOLS];
+            int[] offsetFrequencies = new int[TokenCoder.OFFSET_CODES];
+            for (int i = 0; i < tags.size(); i++) {
+                if (tags.isLiteral(i)) {
+                    literalFrequencies[tags.getLiteral(i) & 0xFF]++;
+                } else {
+                    literalFrequencies[256 + TokenCoder.lengthCode(tags.getLength(i))]++;
+                    offsetFrequencies[TokenCoder.offsetCode(tags.getOffset(i))]++;
+                }
+            }
+            setPrices(literalFrequencies, literalLength);
+            setPrices(offsetFrequencies, offset);
+        }
+
+        // Unused symbols are priced as if they occurred half a time
+        private static void setPrices(int[] frequencies, int[] prices) {
+            long total = 0;
+            for (int frequency : frequencies) {
+                total += frequency;
+            }
+            double scale = 1 << PRICE_BITS;
+            for (int symbol = 0; symbol < frequencies.length; symbol++) {
+                double frequency = frequencies[symbol] == 0 ? 0.5 : frequencies[symbol];
+                prices[symbol] = (int) Math.round(scale * Math.log((total + 1) / frequency) / Math.log(2));
+            }
+        }
+
+        int literal(byte value) {
+            return literalLength[value & 0xFF];
+        }
+
+        int match(int matchOffset, int length) {
+            int lengthCode = TokenCoder.lengthCode(length);
+            int offsetCode = TokenCoder.offsetCode(matchOffset);
+            return literalLength[256 + lengthCode] + offset[offsetCode]
+                    + ((TokenCoder.lengthExtraBits(lengthCode) + TokenCoder.offsetExtraBits(offsetCode)) << PRICE_BITS);
+        }
+    }
+
+    // The matches at every position of a block, collected once and parsed with each set of prices
+    private static class Matches {
+        final int length; // Length of the block
+        final int niceLength; // A match this long is taken as it is
+        final int[] first; // Index of each position's first match, the next position's index ends them
+        int[] lengths = new int[1024]; // Match lengths, each one longer than the one before at a position
+        int[] offsets = new int[1024]; // Nearest offset reaching each length
+        int count; // Number of matches collected
+
+        Matches(byte[] data, int start, int end, int maxLength, LZ77.MatchFinder finder) {
+            finder.reset(data, end, LEVEL, maxLength);
+            for (int i = Math.max(0, start - LZ77.WINDOW_SIZE); i < start; i++) {
+                finder.insert(i);
+            }
+            length = end - start;
+            niceLength = finder.niceLength;
+            first = new int[length + 1];
+
+            int[] matchLengths = new int[MAX_MATCHES];
+            int[] matchOffsets = new int[MAX_MATCHES];
+            int i = 0;
+            while (i < length) {
+                int pos = start + i;
+                int found = finder.findAll(pos, matchLengths, matchOffsets);
+                finder.insert(pos);
+                first[i] = count;
+                if (count + found > lengths.length) {
+                    lengths = Arrays.copyOf(lengths, Math.max(count + found, lengths.length * 2));
+                    offsets = Arrays.copyOf(offsets, lengths.length);
+                }
+                System.arraycopy(matchLengths, 0, lengths, count, found);
+                System.arraycopy(matchOffsets, 0, offsets, count, found);
+                count += found;
+
+                // The positions a long match covers are indexed but not searched, which keeps runs and repeated
+                // blocks from being searched at every byte
+                if (found > 0 && matchLengths[found - 1] >= niceLength) {
+                    int longest = matchLengths[found - 1];
+                    for (int j = 1; j < longest; j++) {
+                        finder.insert(pos + j);
+                        first[i + j] = count;
+                    }
+                    i += longest;
+                } else {
+                    i++;
+                }
+            }
+            first[length] = count;
+        }
+
+        // Finds the cheapest tags for the block with the prices and appends them to the buffer
+        void shortestPath(byte[] data, int start, Prices prices, TagBuffer tags) {
+            long[] price = new long[length + 1]; // Cheapest price to reach each position
+            int[] steps = new int[length + 1]; // Length of the tag reaching each position on the cheapest path, 1 for a literal
+            int[] stepOffsets = new int[length + 1]; // Offset of that tag, 0 for a literal
+            Arrays.fill(price, 1, length + 1, Long.MAX_VALUE);
+
+            int i = 0;
+            while (i < length) {
+                relax(price, steps, stepOffsets, i, 1, 0, prices.literal(data[start + i]));
+
+                // A match of every length up to the longest, each taken from the nearest match that reaches it
+                int matchLength = LZ77.MIN_MATCH;
+                for (int m = first[i]; m < first[i + 1]; m++) {
+                    for (; matchLength <= lengths[m]; matchLength++) {
+                        relax(price, steps, stepOffsets, i, matchLength, offsets[m], prices.match(offsets[m], matchLength));
+                    }
+                }
+
+                int last = first[i + 1] - 1;
+                i += last >= first[i] && lengths[last] >= niceLength ? lengths[last] : 1;
+            }
+
+            // Walk the cheapest path back from the end, linking each step to the next one in the price array
+            for (int j = length; j > 0; j -= steps[j]) {
+                price[j - steps[j]] = j;
+            }
+            for (int j = 0; j < length; ) {
+                int to = (int) price[j];
+                if (stepOffsets[to] == 0) {
+                    tags.addLiteral(data[start + j]);
+                } else {
+                    tags.addMatch(stepOffsets[to], steps[to]);
+                }
+                j = to;
+            }
+        }
+    }
+
+    // Reaches position i + length with the tag if that is cheaper than the best path found so far
+    private static void relax(long[] price, int[] steps, int[] offsets, int i, int length, int offset, int tagPrice) {
+        long total = price[i] + tagPrice;
+        if (total < price[i + length]) {
+            price[i + length] = total;
+            steps[i + length] = length;
+            offsets[i + length] = offset;
+        }
+    }
+}
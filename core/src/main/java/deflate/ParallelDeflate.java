@@ -0,0 +1,206 @@
+package deflate;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+// Compresses and decompresses blocks on several threads, in the same archive format
+class ParallelDeflate {
+    // Compresses the input on a pool of threads; primed blocks use the previous block's tail as history
+    public static void compress(InputStream in, OutputStream out, int level, int threads, int blockSize,
+                                boolean primed) throws IOException {
+        if (level < LZ77.MIN_LEVEL || level > LZ77.MAX_LEVEL) {
+            throw new IllegalArgumentException("Compression level must be between " + LZ77.MIN_LEVEL + " and " + LZ77.MAX_LEVEL);
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be positive");
+        }
+
+        DataOutputStream data = new DataOutputStream(out);
+        Archive archive = new Archive(Archive.FLAG_BLOCK_TYPES | Archive.FLAG_CHECKSUMS
+                | (primed ? 0 : Archive.FLAG_INDEPENDENT_BLOCKS), blockSize);
+        archive.write(data);
+        BlockIndex index = new BlockIndex();
+        CRC32C streamChecksum = new CRC32C(); // Of the block checksums, taken as the blocks are written
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        Deque<Future<byte[]>> pending = new ArrayDeque<>(); // Blocks being compressed, in input order
+        Deque<Integer> pendingLengths = new ArrayDeque<>();
+        try {
+            byte[] tail = new byte[0]; // End of the previous block, used as history
+            while (true) {
+                int historyLength = primed ? tail.length : 0;
+                byte[] buffer = new byte[historyLength + blockSize];
+                System.arraycopy(tail, 0, buffer, 0, historyLength);
+                int blockLength = in.readNBytes(buffer, historyLength, blockSize);
+                if (blockLength == 0) {
+                    break;
+                }
+
+                int end = historyLength + blockLength;
+                pending.add(pool.submit(() -> {
+                    Compressor context = Compressor.acquire();
+                    try {
+                        return archive.compressBlock(context, buffer, historyLength, end, level);
+                    } finally {
+                        context.release();
+                    }
+                }));
+                pendingLengths.add(blockLength);
+                if (primed) {
+                    tail = Arrays.copyOfRange(buffer, Math.max(0, end - LZ77.WINDOW_SIZE), end);
+                }
+
+                // Write finished blocks in order, keeping a bounded number in flight
+                while (pending.size() >= threads * 2) {
+                    writeBlock(data, pendingLengths.poll(), await(pending.poll()), index, streamChecksum);
+                }
+            }
+
+            while (!pending.isEmpty()) {
+                writeBlock(data, pendingLengths.poll(), await(pending.poll()), index, streamChecksum);
+            }
+            data.writeInt(0); // An empty block marks the end of the stream
+            data.writeInt((int) streamChecksum.getValue());
+            index.write(data);
+            data.flush();
+        } finally {
+            shutdown(pool); // The running tasks return their compressors to the pool
+        }
+    }
+
+    // Decompresses an indexed archive, decoding the blocks on a pool of threads
+    public static void decompress(Path archivePath, OutputStream out, int threads) throws IOException {
+        decompress(archivePath, out, threads, null);
+    }
+
+    // Decompresses an indexed archive that may need a dictionary
+    public static void decompress(Path archivePath, OutputStream out, int threads, Dictionary dictionary)
+            throws IOException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be positive");
+        }
+
+        try (FileChannel channel = FileChannel.open(archivePath, StandardOpenOption.READ)) {
+            Archive archive = Archive.read(channel);
+            BlockIndex index = BlockIndex.read(channel, archive);
+            if (index == null) {
+                throw new IOException("Archive has no block index");
+            }
+            Dictionary blockDictionary = archive.checkDictionary(dictionary);
+
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            Deque<Future<Archive.DecodedBlock>> pending = new ArrayDeque<>(); // Blocks being decoded, in archive order
+            Deque<Decompressor> contexts = new ArrayDeque<>(); // Holding the tags of each pending block
+            CRC32C streamChecksum = archive.hasChecksums() ? new CRC32C() : null; // Of the replayed blocks' checksums
+            Decompressor replay = Decompressor.acquire(); // Holds the window the blocks are replayed into
+            int limit = 0; // End of the decompressed data in the window
+            int next = 0; // Next block to replay
+            try {
+                for (int block = 0; block < index.size(); block++) {
+                    long dataOffset = index.getDataOffset(block);
+                    int compressedLength = index.getCompressedLength(block);
+                    int blockLength = index.getRawLength(block);
+                    Decompressor context = Decompressor.acquire();
+                    contexts.add(context);
+                    pending.add(pool.submit(() -> archive.decodeBlock(context,
+                            BlockIndex.readFully(channel, dataOffset, compressedLength).array(), blockLength)));
+
+                    // Replay decoded blocks in order, keeping a bounded number in flight
+                    while (pending.size() >= threads * 2) {
+                        limit = replayBlock(pending.poll(), contexts.peek(), archive, replay, limit, index.getRawLength(next++),
+                                blockDictionary, streamChecksum, out);
+                        contexts.poll().release();
+                    }
+                }
+
+                while (!pending.isEmpty()) {
+                    limit = replayBlock(pending.poll(), contexts.peek(), archive, replay, limit, index.getRawLength(next++),
+                            blockDictionary, streamChecksum, out);
+                    contexts.poll().release();
+                }
+                if (streamChecksum != null && BlockIndex.readFully(channel, index.getEndOffset() + 4,
+                        Archive.CHECKSUM_SIZE).getInt() != (int) streamChecksum.getValue()) {
+                    throw new IOException("Stream checksum mismatch");
+                }
+                out.flush();
+            } finally {
+                // After a failure the blocks still pending hold their decompressors, which go back to the pool
+                // once no task can use them
+                if (shutdown(pool)) {
+                    contexts.forEach(Decompressor::release);
+                }
+                replay.release();
+            }
+        }
+    }
+
+    private static void writeBlock(DataOutputStream out, int blockLength, byte[] compressedData,
+                                   BlockIndex index, CRC32C streamChecksum) throws IOException {
+        Archive.addBlockChecksum(streamChecksum, compressedData);
+        out.writeInt(blockLength);
+        out.writeInt(compressedData.length);
+        out.write(compressedData);
+        index.add(blockLength, compressedData.length);
+    }
+
+    // Replays a decoded block after the history kept in the replay context's window and writes it out, adding
+    // its checksum to the stream checksum if there is one
+    private static int replayBlock(Future<Archive.DecodedBlock> block, Decompressor context, Archive archive,
+                                   Decompressor replay, int limit, int blockLength, Dictionary dictionary,
+                                   CRC32C streamChecksum, OutputStream out) throws IOException {
+        int historyLength = archive.prepareHistory(replay.window(archive.getInitialWindowSize()), limit, dictionary);
+        byte[] window = replay.growWindow(archive, historyLength, blockLength);
+
+        Archive.DecodedBlock decodedBlock = await(block);
+        int end = Archive.replayBlock(context, decodedBlock, window, historyLength, blockLength);
+        if (streamChecksum != null) {
+            Archive.addBlockChecksum(streamChecksum, decodedBlock);
+        }
+        out.write(window, historyLength, blockLength);
+        return end;
+    }
+
+    // Stops the pool: tasks that haven't started are cancelled, and the running ones are waited for, so that the
+    // contexts they use are free again. Returns false if interrupted before the running tasks finished.
+    private static boolean shutdown(ForkJoinPool pool) {
+        pool.shutdownNow();
+        try {
+            while (!pool.awaitTermination(1, TimeUnit.SECONDS)) {
+                // Coding a block doesn't stop on an interrupt, wait until it is done
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // Waits for a task, rethrowing its failure as an IOException
+    private static <T> T await(Future<T> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a block");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Block task failed", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package deflate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+// Input stream over a file that keeps reading ahead while the caller works on the data. Up to READ_AHEAD
+// buffers are being filled by an asynchronous channel at a time; a buffer that has been read is recycled
+// for the next read, so the reads run as far ahead as the buffers allow and no further.
+class ReadAheadInputStream extends InputStream {
+    public static final int BUFFER_SIZE = 1 << 20; // Bytes per read
+    public static final int READ_AHEAD = 4; // Buffers in flight
+
+    private final AsynchronousFileChannel channel;
+    private final long size; // File size when the stream was opened
+    private final Deque<Read> reads = new ArrayDeque<>(); // Reads in flight, in file order
+    private final Deque<ByteBuffer> free = new ArrayDeque<>(); // Buffers to read into
+    private int allocated = 0; // Buffers made so far, at most READ_AHEAD
+    private long requested = 0; // File offset after the last read started
+    private ByteBuffer current = ByteBuffer.allocate(0); // Buffer being consumed
+
+    // A read into a buffer at a file position
+    private static class Read {
+        final ByteBuffer buffer;
+        final long position;
+        final Future<Integer> result;
+
+        Read(ByteBuffer buffer, long position, Future<Integer> result) {
+            this.buffer = buffer;
+            this.position = position;
+            this.result = result;
+        }
+    }
+
+    public ReadAheadInputStream(Path path) throws IOException {
+        this.channel = AsynchronousFileChannel.open(path, StandardOpenOption.READ);
+        this.size = channel.size();
+        readAhead();
+    }
+
+    @Override
+    public int read() throws IOException {
+        return nextBuffer() ? current.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+        if (len == 0) {
+            return 0;
+        }
+        if (!nextBuffer()) {
+            return -1;
+        }
+
+        int count = Math.min(len, current.remaining());
+        current.get(b, off, count);
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return current.remaining();
+    }
+
+    // Hands each buffer to a compressor as it arrives, without copying it through a transfer buffer
+    @Override
+    public long transferTo(OutputStream out) throws IOException {
+        if (!(out instanceof DeflateOutputStream)) {
+            return super.transferTo(out);
+        }
+
+        long count = 0;
+        while (nextBuffer()) {
+            count += current.remaining();
+            ((DeflateOutputStream) out).write(current);
+        }
+        return count;
+    }
+
+    // Closes the channel; reads still in flight are cancelled
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // Starts reads into the free buffers, up to READ_AHEAD in flight
+    private void readAhead() {
+        while (requested < size && (!free.isEmpty() || allocated < READ_AHEAD)) {
+            int length = (int) Math.min(BUFFER_SIZE, size - requested);
+            ByteBuffer buffer = free.poll();
+            if (buffer == null) {
+                buffer = ByteBuffer.allocateDirect(length); // A small file gets a small buffer
+                allocated++;
+            }
+            buffer.clear().limit(Math.min(length, buffer.capacity()));
+            reads.add(new Read(buffer, requested, channel.read(buffer, requested)));
+            requested += buffer.limit();
+        }
+    }
+
+    // Recycles the consumed buffer and waits for the next one, returns false at the end of the file
+    private boolean nextBuffer() throws IOException {
+        while (!current.hasRemaining()) {
+            if (current.isDirect()) {
+                free.add(current);
+            }
+            current = ByteBuffer.allocate(0);
+            readAhead();
+            Read read = reads.poll();
+            if (read == null) {
+                return false;
+            }
+            current = complete(read);
+        }
+        return true;
+    }
+
+    // Waits for the read and finishes it if the channel returned fewer bytes, returns the buffer ready to consume
+    private ByteBuffer complete(Read read) throws IOException {
+        ByteBuffer buffer = read.buffer;
+        int count = await(read.result);
+        while (count >= 0 && buffer.hasRemaining()) {
+            count = await(channel.read(buffer, read.position + buffer.position()));
+        }
+        return buffer.flip(); // Shorter if the file was truncated while reading
+    }
+
+    // Waits for an operation on the channel, rethrowing its failure as an IOException
+    static int await(Future<Integer> result) throws IOException {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the file");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("File operation failed", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package deflate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Random access to the uncompressed data of an indexed archive. With independent blocks a range read
+// decodes only the blocks that overlap the range; otherwise every block up to the range is replayed.
+class SeekableArchive implements Closeable {
+    private final FileChannel channel;
+    private final Archive archive;
+    private final BlockIndex index;
+    private final Dictionary dictionary; // Null if the archive has no dictionary
+
+    private SeekableArchive(FileChannel channel, Archive archive, BlockIndex index, Dictionary dictionary) {
+        this.channel = channel;
+        this.archive = archive;
+        this.index = index;
+        this.dictionary = dictionary;
+    }
+
+    // Opens an archive and reads its block index
+    public static SeekableArchive open(Path path) throws IOException {
+        return open(path, null);
+    }
+
+    // Opens an archive that may need a dictionary
+    public static SeekableArchive open(Path path, Dictionary dictionary) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return open(channel, channel.size(), dictionary);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // Opens the archive at the start of the channel whose block index ends at end, such as the stream of a
+    // SolidArchive. The channel is closed with the archive.
+    static SeekableArchive open(FileChannel channel, long end, Dictionary dictionary) throws IOException {
+        Archive archive = Archive.read(channel);
+        BlockIndex index = BlockIndex.read(channel, archive, end);
+        if (index == null) {
+            throw new IOException("Archive has no block index");
+        }
+        return new SeekableArchive(channel, archive, index, archive.checkDictionary(dictionary));
+    }
+
+    // Reads length uncompressed bytes at the offset from the archive
+    public static byte[] readRange(Path path, Dictionary dictionary, long offset, int length) throws IOException {
+        try (SeekableArchive archive = open(path, dictionary)) {
+            return archive.readRange(offset, length);
+        }
+    }
+
+    // Uncompressed length of the archive
+    public long length() {
+        return index.getRawLength();
+    }
+
+    // Block that holds the uncompressed byte at the offset
+    int findBlock(long offset) {
+        return index.findBlock(offset);
+    }
+
+    // Whether blocks can be decoded without the blocks before them
+    public boolean isIndependent() {
+        return archive.isIndependent();
+    }
+
+    // Reads length uncompressed bytes at the offset
+    public byte[] readRange(long offset, int length) throws IOException {
+        if (offset < 0 || length < 0 || offset + length > length()) {
+            throw new IllegalArgumentException("Range " + offset + "+" + length + " is outside the archive");
+        }
+        ByteArrayOutputStream result = new ByteArrayOutputStream(length);
+        if (length > 0) {
+            copyRange(offset, length, isIndependent() ? index.findBlock(offset) : 0, result);
+        }
+        return result.toByteArray();
+    }
+
+    // Writes length uncompressed bytes at the offset to out, decoding from the start block on. Decoding can
+    // start at block 0, at any block of an archive with independent blocks, or at a block the archive was
+    // written to start without history (see DeflateOutputStream.checkpoint).
+    void copyRange(long offset, long length, int start, OutputStream out) throws IOException {
+        int first = index.findBlock(offset);
+        int last = index.findBlock(offset + length - 1);
+        if (start > first) {
+            throw new IllegalArgumentException("Decoding starts after the range");
+        }
+        Decompressor context = Decompressor.acquire(); // Window and decoders, reused by later reads
+        try {
+            byte[] window = context.window(archive.getInitialWindowSize());
+            int limit = 0; // End of the decompressed data in the window
+
+            for (int block = start; block <= last; block++) {
+                int blockLength = index.getRawLength(block);
+                int historyLength = archive.prepareHistory(window, limit, dictionary);
+                window = context.growWindow(archive, historyLength, blockLength);
+
+                byte[] compressedData = BlockIndex.readFully(channel, index.getDataOffset(block),
+                        index.getCompressedLength(block)).array();
+                Archive.DecodedBlock decodedBlock = archive.decodeBlock(context, compressedData,
+                        blockLength);
+                limit = Archive.replayBlock(context, decodedBlock, window, historyLength, blockLength);
+
+                // Write the part of the block that falls into the range
+                if (block >= first) {
+                    long blockOffset = index.getRawOffset(block);
+                    long from = Math.max(offset, blockOffset);
+                    long to = Math.min(offset + length, blockOffset + blockLength);
+                    out.write(window, historyLength + (int) (from - blockOffset), (int) (to - from));
+                }
+            }
+        } finally {
+            context.release();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
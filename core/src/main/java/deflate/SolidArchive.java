@@ -0,0 +1,293 @@
+package deflate;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+// Many files compressed as one stream, so that each file finds matches in the files before it and small
+// files share blocks and Huffman codes instead of each starting with an empty window and a header. The
+// stream is an ordinary indexed archive that DeflateInputStream can read; it is followed by a file table
+// with the name, offset, size and CRC-32C of every file in the uncompressed stream, the checkpoints, and
+// a footer. A checkpoint is a block that starts without history, set at a file boundary every checkpoint
+// interval, so a single file is extracted by decoding from the checkpoint before it rather than from the
+// start of the stream.
+class SolidArchive implements Closeable {
+    public static final int SOLID_MAGIC = 0x44465331; // "DFS1", the last four bytes of a solid archive
+    public static final int FOOTER_SIZE = 12; // Table offset and magic
+    public static final int DEFAULT_CHECKPOINT_INTERVAL = 1 << 22; // Uncompressed bytes between checkpoints
+    private static final int COPY_BUFFER_SIZE = 1 << 16;
+
+    private final Path path;
+    private final Dictionary dictionary; // Null if the archive has no dictionary
+    private final SeekableArchive stream; // The compressed files, up to the file table
+    private final List<Entry> entries;
+    private final int[] checkpoints; // Blocks that start without history, ascending and starting with 0
+
+    // A file in the archive
+    public static class Entry {
+        private final String name; // Relative path with '/' separators
+        private final long offset; // Start of the file in the uncompressed stream
+        private final long size;
+        private final int checksum; // CRC-32C of the file
+
+        Entry(String name, long offset, long size, int checksum) {
+            this.name = name;
+            this.offset = offset;
+            this.size = size;
+            this.checksum = checksum;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public int getChecksum() {
+            return checksum;
+        }
+    }
+
+    private SolidArchive(Path path, Dictionary dictionary, SeekableArchive stream, List<Entry> entries,
+                         int[] checkpoints) {
+        this.path = path;
+        this.dictionary = dictionary;
+        this.stream = stream;
+        this.entries = entries;
+        this.checkpoints = checkpoints;
+    }
+
+    // Compresses the files into a solid archive under the given names, in order. Files of a similar kind
+    // should be next to each other, as matches only reach back as far as the window.
+    public static void write(List<Path> files, List<String> names, Path target, int level, int windowSize,
+                             Dictionary dictionary, int checkpointInterval) throws IOException {
+        if (files.size() != names.size()) {
+            throw new IllegalArgumentException("Every file needs a name");
+        }
+        if (checkpointInterval <= 0) {
+            throw new IllegalArgumentException("Checkpoint interval must be positive");
+        }
+
+        List<Entry> entries = new ArrayList<>();
+        List<Integer> checkpoints = new ArrayList<>(List.of(0));
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            // The stream must not close the channel, the table goes after it
+            DeflateOutputStream out = new DeflateOutputStream(new ChannelOutputStream(channel) {
+                @Override
+                public void close() throws IOException {
+                    flush();
+                }
+            }, level, Archive.DEFAULT_BLOCK_SIZE, false, dictionary, windowSize);
+            try (out) {
+                long offset = 0;
+                long checkpointOffset = 0; // Uncompressed offset of the last checkpoint
+                for (int i = 0; i < files.size(); i++) {
+                    if (offset - checkpointOffset >= checkpointInterval) {
+                        checkpoints.add(out.checkpoint());
+                        checkpointOffset = offset;
+                    }
+                    CRC32C crc = new CRC32C();
+                    long size = 0;
+                    try (InputStream in = new MappedInputStream(files.get(i))) {
+                        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+                        for (int count; (count = in.read(buffer)) > 0; size += count) {
+                            crc.update(buffer, 0, count);
+                            out.write(buffer, 0, count);
+                        }
+                    }
+                    entries.add(new Entry(names.get(i), offset, size, (int) crc.getValue()));
+                    offset += size;
+                }
+            }
+
+            long tableOffset = channel.position();
+            DataOutputStream table = new DataOutputStream(new ChannelOutputStream(channel));
+            table.writeInt(entries.size());
+            for (Entry entry : entries) {
+                table.writeUTF(entry.name);
+                table.writeLong(entry.offset);
+                table.writeLong(entry.size);
+                table.writeInt(entry.checksum);
+            }
+            table.writeInt(checkpoints.size());
+            for (int checkpoint : checkpoints) {
+                table.writeInt(checkpoint);
+            }
+            table.writeLong(tableOffset);
+            table.writeInt(SOLID_MAGIC);
+            table.flush();
+        }
+    }
+
+    // Opens a solid archive and reads its file table
+    public static SolidArchive open(Path path, Dictionary dictionary) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long fileSize = channel.size();
+            if (fileSize < Archive.HEADER_SIZE + FOOTER_SIZE) {
+                throw new IOException("Not a solid archive");
+            }
+            ByteBuffer footer = BlockIndex.readFully(channel, fileSize - FOOTER_SIZE, FOOTER_SIZE);
+            long tableOffset = footer.getLong();
+            if (footer.getInt() != SOLID_MAGIC) {
+                throw new IOException("Not a solid archive");
+            }
+            if (tableOffset < Archive.HEADER_SIZE || tableOffset > fileSize - FOOTER_SIZE
+                    || fileSize - FOOTER_SIZE - tableOffset > Integer.MAX_VALUE) {
+                throw new IOException("Corrupt file table");
+            }
+            ByteBuffer table = BlockIndex.readFully(channel, tableOffset, (int) (fileSize - FOOTER_SIZE - tableOffset));
+
+            SeekableArchive stream = SeekableArchive.open(channel, tableOffset, dictionary);
+            List<Entry> entries = readEntries(table, stream);
+            return new SolidArchive(path, dictionary, stream, entries, readCheckpoints(table, stream));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // Reads the entries, which must cover the uncompressed stream in order
+    private static List<Entry> readEntries(ByteBuffer table, SeekableArchive stream) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(table.array(), 0, table.limit()));
+        try {
+            int count = in.readInt();
+            if (count < 0 || count > table.limit()) {
+                throw new IOException("Corrupt file table");
+            }
+            List<Entry> entries = new ArrayList<>(count);
+            long offset = 0;
+            for (int i = 0; i < count; i++) {
+                Entry entry = new Entry(in.readUTF(), in.readLong(), in.readLong(), in.readInt());
+                if (entry.offset != offset || entry.size < 0 || entry.size > stream.length() - offset) {
+                    throw new IOException("Corrupt file table");
+                }
+                entries.add(entry);
+                offset += entry.size;
+            }
+            if (offset != stream.length()) {
+                throw new IOException("Corrupt file table");
+            }
+            table.position(table.limit() - in.available());
+            return Collections.unmodifiableList(entries);
+        } catch (EOFException e) {
+            throw new IOException("Corrupt file table", e);
+        }
+    }
+
+    // Reads the checkpoints that follow the entries
+    private static int[] readCheckpoints(ByteBuffer table, SeekableArchive stream) throws IOException {
+        if (table.remaining() < 4) {
+            throw new IOException("Corrupt file table");
+        }
+        int count = table.getInt();
+        if (count < 1 || table.remaining() != (long) count * 4) {
+            throw new IOException("Corrupt file table");
+        }
+        int[] checkpoints = new int[count];
+        for (int i = 0; i < count; i++) {
+            checkpoints[i] = table.getInt();
+            if (i == 0 ? checkpoints[i] != 0 : checkpoints[i] <= checkpoints[i - 1]) {
+                throw new IOException("Corrupt file table");
+            }
+        }
+        return checkpoints;
+    }
+
+    // The files in the archive, in the order they were compressed
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    // The file with the name, or null
+    public Entry find(String name) {
+        for (Entry entry : entries) {
+            if (entry.name.equals(name)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    // Decompresses the file to out, starting at the nearest checkpoint before it, and checks its CRC-32C
+    public void extract(Entry entry, OutputStream out) throws IOException {
+        CRC32C crc = new CRC32C();
+        if (entry.size > 0) {
+            int first = stream.findBlock(entry.offset);
+            int start = 0;
+            for (int checkpoint : checkpoints) {
+                if (checkpoint <= first) {
+                    start = checkpoint;
+                }
+            }
+            // The checksum is taken on the way out; the caller's stream is left open
+            CheckedOutputStream checked = new CheckedOutputStream(out, crc);
+            stream.copyRange(entry.offset, entry.size, start, checked);
+        }
+        if ((int) crc.getValue() != entry.checksum) {
+            throw new IOException("Checksum mismatch in " + entry.name);
+        }
+    }
+
+    // Decompresses every file into the directory in one pass over the stream, checking their CRC-32C
+    public void extractAll(Path directory) throws IOException {
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        try (InputStream in = new DeflateInputStream(new MappedInputStream(path), dictionary)) {
+            for (Entry entry : entries) {
+                Path target = target(directory, entry);
+                Files.createDirectories(target.toAbsolutePath().getParent());
+                CRC32C crc = new CRC32C();
+                try (OutputStream out = new CheckedOutputStream(new ChannelOutputStream(target), crc)) {
+                    for (long remaining = entry.size; remaining > 0; ) {
+                        int count = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                        if (count < 0) {
+                            throw new IOException("Unexpected end of archive");
+                        }
+                        out.write(buffer, 0, count);
+                        remaining -= count;
+                    }
+                }
+                if ((int) crc.getValue() != entry.checksum) {
+                    throw new IOException("Checksum mismatch in " + entry.name);
+                }
+            }
+        }
+    }
+
+    // Where the file goes below the directory; names that would leave it are rejected
+    public static Path target(Path directory, Entry entry) throws IOException {
+        Path target = directory.resolve(entry.name).normalize();
+        if (entry.name.isEmpty() || entry.name.startsWith("/") || !target.startsWith(directory.normalize())
+                || target.equals(directory.normalize())) {
+            throw new IOException("Unsafe file name in archive: " + entry.name);
+        }
+        return target;
+    }
+
+    @Override
+    public void close() throws IOException {
+        stream.close();
+    }
+}
@@ -0,0 +1,620 @@
+package deflate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.util.Arrays;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
+
+// Reads and writes standard deflate streams (RFC 1951), raw or framed as zlib (RFC 1950) or gzip (RFC 1952)
+class StandardDeflate {
+    public static final int FORMAT_RAW = 0; // Bare deflate blocks
+    public static final int FORMAT_ZLIB = 1; // Two-byte header and Adler-32 trailer
+    public static final int FORMAT_GZIP = 2; // Ten-byte header and CRC-32 trailer
+
+    private static final int MAX_MATCH = 258; // Longest match deflate can express
+    private static final int MAX_DISTANCE = 32768; // Largest distance deflate can express
+    private static final int CHUNK_SIZE = 65535; // Input bytes per block, also the largest stored block
+    private static final int END_OF_BLOCK = 256; // Literal/length symbol ending a block
+    private static final int LITERAL_CODES = 286; // Literal/length alphabet size
+    private static final int DISTANCE_CODES = 30; // Distance alphabet size
+    private static final int CODE_LENGTH_CODES = 19; // Code length alphabet size
+    private static final int MAX_CODE_LENGTH_BITS = 7; // Code length codes are limited to 7 bits
+
+    // Base value and extra bits of each length and distance code
+    private static final int[] LENGTH_BASE = {3, 4, 5, 6, 7, 8, 9, 10, 11, 13, 15, 17, 19, 23, 27, 31,
+            35, 43, 51, 59, 67, 83, 99, 115, 131, 163, 195, 227, 258};
+    private static final int[] LENGTH_EXTRA = {0, 0, 0, 0, 0, 0, 0, 0, 1, 1, 1, 1, 2, 2, 2, 2,
+            3, 3, 3, 3, 4, 4, 4, 4, 5, 5, 5, 5, 0};
+    private static final int[] DISTANCE_BASE = {1, 2, 3, 4, 5, 7, 9, 13, 17, 25, 33, 49, 65, 97, 129, 193,
+            257, 385, 513, 769, 1025, 1537, 2049, 3073, 4097, 6145, 8193, 12289, 16385, 24577};
+    private static final int[] DISTANCE_EXTRA = {0, 0, 0, 0, 1, 1, 2, 2, 3, 3, 4, 4, 5, 5, 6, 6,
+            7, 7, 8, 8, 9, 9, 10, 10, 11, 11, 12, 12, 13, 13};
+    // Order in which the code length code lengths are stored
+    private static final int[] CODE_LENGTH_ORDER = {16, 17, 18, 0, 8, 7, 9, 6, 10, 5, 11, 4, 12, 3, 13, 2, 14, 1, 15};
+
+    private static final int[] LENGTH_CODE = new int[MAX_MATCH + 1]; // Length code index for each match length
+    private static final int[] DISTANCE_CODE = new int[MAX_DISTANCE + 1]; // Distance code for each distance
+    private static final int[] FIXED_LITERAL_LENGTHS = new int[288]; // Code lengths of the fixed Huffman codes
+    private static final int[] FIXED_DISTANCE_LENGTHS = new int[32];
+
+    static {
+        for (int code = 0; code < LENGTH_BASE.length; code++) {
+            int last = Math.min(MAX_MATCH, LENGTH_BASE[code] + (1 << LENGTH_EXTRA[code]) - 1);
+            for (int length = LENGTH_BASE[code]; length <= last; length++) {
+                LENGTH_CODE[length] = code;
+            }
+        }
+        for (int code = 0; code < DISTANCE_BASE.length; code++) {
+            for (int i = 0; i < 1 << DISTANCE_EXTRA[code]; i++) {
+                DISTANCE_CODE[DISTANCE_BASE[code] + i] = code;
+            }
+        }
+        Arrays.fill(FIXED_LITERAL_LENGTHS, 0, 144, 8);
+        Arrays.fill(FIXED_LITERAL_LENGTHS, 144, 256, 9);
+        Arrays.fill(FIXED_LITERAL_LENGTHS, 256, 280, 7);
+        Arrays.fill(FIXED_LITERAL_LENGTHS, 280, 288, 8);
+        Arrays.fill(FIXED_DISTANCE_LENGTHS, 5);
+    }
+
+    // Compresses the input into a deflate stream in the given format
+    public static void compress(InputStream in, OutputStream out, int level, int format) throws IOException {
+        if (level < LZ77.MIN_LEVEL || level > LZ77.MAX_LEVEL) {
+            throw new IllegalArgumentException("Compression level must be between " + LZ77.MIN_LEVEL + " and " + LZ77.MAX_LEVEL);
+        }
+
+        LsbBitWriter writer = new LsbBitWriter(out);
+        Checksum checksum = format == FORMAT_GZIP ? new CRC32() : new Adler32();
+        writeHeader(writer, format, level);
+
+        byte[] window = new byte[LZ77.WINDOW_SIZE + CHUNK_SIZE]; // History followed by the current chunk
+        TagBuffer tags = new TagBuffer(); // Reused for every chunk
+        int historyLength = 0;
+        long totalLength = 0;
+        while (true) {
+            int length = in.readNBytes(window, historyLength, CHUNK_SIZE);
+            boolean last = length < CHUNK_SIZE; // A full chunk at the end is followed by an empty final block
+            int end = historyLength + length;
+            checksum.update(window, historyLength, length);
+            totalLength += length;
+
+            LZ77.encode(window, historyLength, end, level, MAX_MATCH, tags);
+            writeBlock(writer, tags, window, historyLength, end, last);
+            if (last) {
+                break;
+            }
+
+            // Keep the tail of the data as history for the next chunk
+            historyLength = Math.min(end, LZ77.WINDOW_SIZE);
+            System.arraycopy(window, end - historyLength, window, 0, historyLength);
+        }
+
+        writer.alignToByte();
+        writeTrailer(writer, format, checksum.getValue(), totalLength);
+        writer.flush();
+    }
+
+    // Decompresses a stream, detecting gzip and zlib framing and treating anything else as raw deflate
+    public static void decompress(InputStream in, OutputStream out) throws IOException {
+        PushbackInputStream source = new PushbackInputStream(in, 2);
+        int first = source.read();
+        int second = source.read();
+        if (second >= 0) {
+            source.unread(second);
+        }
+        if (first >= 0) {
+            source.unread(first);
+        }
+
+        int format = FORMAT_RAW;
+        if (first == 0x1F && second == 0x8B) {
+            format = FORMAT_GZIP;
+        } else if (first >= 0 && second >= 0 && (first & 0x0F) == 8 && (first >> 4) <= 7
+                && ((first << 8) | second) % 31 == 0) {
+            format = FORMAT_ZLIB;
+        }
+        decompress(source, out, format);
+    }
+
+    // Decompresses a stream in the given format
+    public static void decompress(InputStream in, OutputStream out, int format) throws IOException {
+        LsbBitReader reader = new LsbBitReader(in);
+        switch (format) {
+            case FORMAT_RAW:
+                inflate(reader, new InflateWindow(out, null));
+                break;
+
+            case FORMAT_ZLIB:
+                readZlibMember(reader, out);
+                break;
+
+            case FORMAT_GZIP:
+                // Concatenated gzip members decompress to the concatenation of their contents
+                readGzipMember(reader, out, reader.readBits(8));
+                for (int next = reader.readAlignedByte(); next >= 0; next = reader.readAlignedByte()) {
+                    readGzipMember(reader, out, next);
+                }
+                break;
+
+            default:
+                throw new IllegalArgumentException("Unknown format: " + format);
+        }
+        out.flush();
+    }
+
+    private static void writeHeader(LsbBitWriter writer, int format, int level) throws IOException {
+        if (format == FORMAT_GZIP) {
+            writer.writeBits(0x1F, 8); // Magic number
+            writer.writeBits(0x8B, 8);
+            writer.writeBits(8, 8); // Compression method: deflate
+            writer.writeBits(0, 8); // No flags
+            writer.writeBits(0, 32); // No modification time
+            writer.writeBits(level >= 9 ? 2 : level == LZ77.MIN_LEVEL ? 4 : 0, 8); // Extra flags: best or fastest
+            writer.writeBits(255, 8); // Unknown operating system
+        } else if (format == FORMAT_ZLIB) {
+            int cmf = 0x78; // Deflate with a 32 KB window
+            int levelFlag = level == LZ77.MIN_LEVEL ? 0 : level < 6 ? 1 : level == 6 ? 2 : 3;
+            int flg = levelFlag << 6;
+            flg += 31 - ((cmf << 8) | flg) % 31; // Header check bits
+            writer.writeBits(cmf, 8);
+            writer.writeBits(flg, 8);
+        } else if (format != FORMAT_RAW) {
+            throw new IllegalArgumentException("Unknown format: " + format);
+        }
+    }
+
+    private static void writeTrailer(LsbBitWriter writer, int format, long checksum, long totalLength) throws IOException {
+        if (format == FORMAT_GZIP) {
+            writer.writeBits(checksum, 32); // CRC-32, little-endian like every gzip field
+            writer.writeBits(totalLength & 0xFFFFFFFFL, 32); // Uncompressed size modulo 2^32
+        } else if (format == FORMAT_ZLIB) {
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                writer.writeBits((checksum >>> shift) & 0xFF, 8); // Adler-32, big-endian
+            }
+        }
+    }
+
+    // Writes the tags as a stored, fixed or dynamic Huffman block, whichever is smallest
+    private static void writeBlock(LsbBitWriter writer, TagBuffer tags, byte[] data, int start, int end,
+                                   boolean last) throws IOException {
+        int[] literalFrequencies = new int[LITERAL_CODES];
+        int[] distanceFrequencies = new int[DISTANCE_CODES];
+        long extraBits = 0;
+        for (int i = 0; i < tags.size(); i++) {
+            if (tags.isLiteral(i)) {
+                literalFrequencies[tags.getLiteral(i) & 0xFF]++;
+            } else {
+                int lengthCode = LENGTH_CODE[tags.getLength(i)];
+                int distanceCode = DISTANCE_CODE[tags.getOffset(i)];
+                literalFrequencies[257 + lengthCode]++;
+                distanceFrequencies[distanceCode]++;
+                extraBits += LENGTH_EXTRA[lengthCode] + DISTANCE_EXTRA[distanceCode];
+            }
+        }
+        literalFrequencies[END_OF_BLOCK] = 1;
+
+        // Build the dynamic codes and their run-length encoded code lengths
+        int[] literalLengths = Huffman.buildCodeLengths(literalFrequencies, Huffman.MAX_CODE_LENGTH);
+        int[] distanceLengths = Huffman.buildCodeLengths(distanceFrequencies, Huffman.MAX_CODE_LENGTH);
+        int literalCount = usedCodes(literalLengths, 257);
+        int distanceCount = usedCodes(distanceLengths, 1);
+        int[] lengths = new int[literalCount + distanceCount];
+        System.arraycopy(literalLengths, 0, lengths, 0, literalCount);
+        System.arraycopy(distanceLengths, 0, lengths, literalCount, distanceCount);
+
+        int[] runSymbols = new int[lengths.length];
+        int[] runExtras = new int[lengths.length];
+        int runCount = encodeRuns(lengths, runSymbols, runExtras);
+        int[] codeLengthFrequencies = new int[CODE_LENGTH_CODES];
+        for (int i = 0; i < runCount; i++) {
+            codeLengthFrequencies[runSymbols[i]]++;
+        }
+        int[] codeLengthLengths = Huffman.buildCodeLengths(codeLengthFrequencies, MAX_CODE_LENGTH_BITS);
+        int codeLengthCount = CODE_LENGTH_CODES;
+        while (codeLengthCount > 4 && codeLengthLengths[CODE_LENGTH_ORDER[codeLengthCount - 1]] == 0) {
+            codeLengthCount--; // Trailing unused code length codes are not stored
+        }
+
+        // Compare the size of the three block types
+        long dynamicBits = 3 + 5 + 5 + 4 + 3L * codeLengthCount + extraBits;
+        for (int i = 0; i < runCount; i++) {
+            dynamicBits += codeLengthLengths[runSymbols[i]] + runExtraBits(runSymbols[i]);
+        }
+        long fixedBits = 3 + extraBits;
+        for (int symbol = 0; symbol < LITERAL_CODES; symbol++) {
+            dynamicBits += (long) literalFrequencies[symbol] * literalLengths[symbol];
+            fixedBits += (long) literalFrequencies[symbol] * FIXED_LITERAL_LENGTHS[symbol];
+        }
+        for (int symbol = 0; symbol < DISTANCE_CODES; symbol++) {
+            dynamicBits += (long) distanceFrequencies[symbol] * distanceLengths[symbol];
+            fixedBits += (long) distanceFrequencies[symbol] * FIXED_DISTANCE_LENGTHS[symbol];
+        }
+        long storedBits = 3 + 7 + 32 + 8L * (end - start); // Header, worst case padding, lengths and data
+
+        writer.writeBits(last ? 1 : 0, 1);
+        if (storedBits <= fixedBits && storedBits <= dynamicBits) {
+            writer.writeBits(0, 2); // Stored block
+            writer.alignToByte();
+            writer.writeBits(end - start, 16);
+            writer.writeBits(~(end - start) & 0xFFFF, 16);
+            writer.writeBytes(data, start, end - start);
+        } else if (fixedBits <= dynamicBits) {
+            writer.writeBits(1, 2); // Fixed Huffman block
+            writeTags(writer, tags, FIXED_LITERAL_LENGTHS, FIXED_DISTANCE_LENGTHS);
+        } else {
+            writer.writeBits(2, 2); // Dynamic Huffman block
+            writer.writeBits(literalCount - 257, 5);
+            writer.writeBits(distanceCount - 1, 5);
+            writer.writeBits(codeLengthCount - 4, 4);
+            for (int i = 0; i < codeLengthCount; i++) {
+                writer.writeBits(codeLengthLengths[CODE_LENGTH_ORDER[i]], 3);
+            }
+            int[] codeLengthCodes = reversedCodes(codeLengthLengths);
+            for (int i = 0; i < runCount; i++) {
+                int symbol = runSymbols[i];
+                writer.writeBits(codeLengthCodes[symbol], codeLengthLengths[symbol]);
+                writer.writeBits(runExtras[i], runExtraBits(symbol));
+            }
+            writeTags(writer, tags, literalLengths, distanceLengths);
+        }
+    }
+
+    // Writes the tags and the end of block symbol with the given codes
+    private static void writeTags(LsbBitWriter writer, TagBuffer tags, int[] literalLengths, int[] distanceLengths)
+            throws IOException {
+        int[] literalCodes = reversedCodes(literalLengths);
+        int[] distanceCodes = reversedCodes(distanceLengths);
+        for (int i = 0; i < tags.size(); i++) {
+            if (tags.isLiteral(i)) {
+                int literal = tags.getLiteral(i) & 0xFF;
+                writer.writeBits(literalCodes[literal], literalLengths[literal]);
+                continue;
+            }
+            int length = tags.getLength(i);
+            int lengthCode = LENGTH_CODE[length];
+            writer.writeBits(literalCodes[257 + lengthCode], literalLengths[257 + lengthCode]);
+            writer.writeBits(length - LENGTH_BASE[lengthCode], LENGTH_EXTRA[lengthCode]);
+
+            int distance = tags.getOffset(i);
+            int distanceCode = DISTANCE_CODE[distance];
+            writer.writeBits(distanceCodes[distanceCode], distanceLengths[distanceCode]);
+            writer.writeBits(distance - DISTANCE_BASE[distanceCode], DISTANCE_EXTRA[distanceCode]);
+        }
+        writer.writeBits(literalCodes[END_OF_BLOCK], literalLengths[END_OF_BLOCK]);
+    }
+
+    // Number of codes to store: up to the last used one, but at least the minimum
+    private static int usedCodes(int[] lengths, int minimum) {
+        int count = lengths.length;
+        while (count > minimum && lengths[count - 1] == 0) {
+            count--;
+        }
+        return count;
+    }
+
+    // Run-length encodes code lengths with the repeat codes 16, 17 and 18, returns the number of runs
+    private static int encodeRuns(int[] lengths, int[] symbols, int[] extras) {
+        int count = 0;
+        for (int i = 0; i < lengths.length; ) {
+            int length = lengths[i];
+            int run = 1;
+            while (i + run < lengths.length && lengths[i + run] == length) {
+                run++;
+            }
+
+            if (length == 0 && run >= 11) {
+                run = Math.min(run, 138);
+                symbols[count] = 18; // Repeat zero 11 to 138 times
+                extras[count++] = run - 11;
+            } else if (length == 0 && run >= 3) {
+                symbols[count] = 17; // Repeat zero 3 to 10 times
+                extras[count++] = run - 3;
+            } else if (length != 0 && run >= 4) {
+                run = Math.min(run, 7);
+                symbols[count] = length; // The length itself, then repeat it 3 to 6 times
+                extras[count++] = 0;
+                symbols[count] = 16;
+                extras[count++] = run - 4;
+            } else {
+                run = 1;
+                symbols[count] = length;
+                extras[count++] = 0;
+            }
+            i += run;
+        }
+        return count;
+    }
+
+    private static int runExtraBits(int symbol) {
+        return symbol == 16 ? 2 : symbol == 17 ? 3 : symbol == 18 ? 7 : 0;
+    }
+
+    // Canonical codes with their bits reversed, deflate sends Huffman codes starting with the first bit
+    private static int[] reversedCodes(int[] lengths) {
+        int[] codes = Huffman.buildCanonicalCodes(lengths);
+        for (int symbol = 0; symbol < codes.length; symbol++) {
+            codes[symbol] = Integer.reverse(codes[symbol]) >>> (32 - Math.max(lengths[symbol], 1));
+        }
+        return codes;
+    }
+
+    private static void readZlibMember(LsbBitReader reader, OutputStream out) throws IOException {
+        int cmf = reader.readBits(8);
+        int flg = reader.readBits(8);
+        if ((cmf & 0x0F) != 8 || (cmf >> 4) > 7 || ((cmf << 8) | flg) % 31 != 0) {
+            throw new IOException("Not a zlib stream");
+        }
+        if ((flg & 0x20) != 0) {
+            throw new IOException("Preset dictionaries are not supported");
+        }
+
+        Adler32 checksum = new Adler32();
+        inflate(reader, new InflateWindow(out, checksum));
+        reader.alignToByte();
+        long expected = 0;
+        for (int i = 0; i < 4; i++) {
+            expected = (expected << 8) | reader.readBits(8); // Adler-32, big-endian
+        }
+        if (expected != checksum.getValue()) {
+            throw new IOException("Adler-32 checksum mismatch");
+        }
+    }
+
+    private static void readGzipMember(LsbBitReader reader, OutputStream out, int first) throws IOException {
+        if (first != 0x1F || reader.readBits(8) != 0x8B || reader.readBits(8) != 8) {
+            throw new IOException("Not a gzip stream");
+        }
+        int flags = reader.readBits(8);
+        for (int i = 0; i < 6; i++) {
+            reader.readBits(8); // Modification time, extra flags and operating system
+        }
+        if ((flags & 0x04) != 0) {
+            int extraLength = reader.readBits(16); // Skip the extra field
+            for (int i = 0; i < extraLength; i++) {
+                reader.readBits(8);
+            }
+        }
+        if ((flags & 0x08) != 0) {
+            while (reader.readBits(8) != 0) {
+                // Skip the zero-terminated file name
+            }
+        }
+        if ((flags & 0x10) != 0) {
+            while (reader.readBits(8) != 0) {
+                // Skip the zero-terminated comment
+            }
+        }
+        if ((flags & 0x02) != 0) {
+            reader.readBits(16); // Skip the header CRC
+        }
+
+        CRC32 checksum = new CRC32();
+        InflateWindow window = new InflateWindow(out, checksum);
+        inflate(reader, window);
+        reader.alignToByte();
+        long expectedChecksum = reader.readBits(16) | ((long) reader.readBits(16) << 16);
+        long expectedLength = reader.readBits(16) | ((long) reader.readBits(16) << 16);
+        if (expectedChecksum != checksum.getValue()) {
+            throw new IOException("CRC-32 checksum mismatch");
+        }
+        if (expectedLength != (window.getTotalLength() & 0xFFFFFFFFL)) {
+            throw new IOException("Uncompressed size mismatch");
+        }
+    }
+
+    // Decodes deflate blocks until the final one
+    private static void inflate(LsbBitReader reader, InflateWindow window) throws IOException {
+        boolean last;
+        do {
+            last = reader.readBits(1) == 1;
+            int type = reader.readBits(2);
+            if (type == 0) {
+                reader.alignToByte(); // Stored block
+                int length = reader.readBits(16);
+                if (reader.readBits(16) != (~length & 0xFFFF)) {
+                    throw new IOException("Corrupt stored block length");
+                }
+                for (int i = 0; i < length; i++) {
+                    window.put(reader.readBits(8));
+                }
+            } else if (type == 1) {
+                inflateBlock(reader, window, new CodeDecoder(FIXED_LITERAL_LENGTHS), new CodeDecoder(FIXED_DISTANCE_LENGTHS));
+            } else if (type == 2) {
+                readDynamicCodes(reader, window);
+            } else {
+                throw new IOException("Invalid deflate block type");
+            }
+        } while (!last);
+        window.flush();
+    }
+
+    // Reads the code lengths of a dynamic Huffman block, then decodes the block
+    private static void readDynamicCodes(LsbBitReader reader, InflateWindow window) throws IOException {
+        int literalCount = reader.readBits(5) + 257;
+        int distanceCount = reader.readBits(5) + 1;
+        int codeLengthCount = reader.readBits(4) + 4;
+        if (literalCount > LITERAL_CODES || distanceCount > DISTANCE_CODES) {
+            throw new IOException("Too many deflate codes");
+        }
+
+        int[] codeLengthLengths = new int[CODE_LENGTH_CODES];
+        for (int i = 0; i < codeLengthCount; i++) {
+            codeLengthLengths[CODE_LENGTH_ORDER[i]] = reader.readBits(3);
+        }
+        CodeDecoder codeLengthDecoder = new CodeDecoder(codeLengthLengths);
+
+        int[] lengths = new int[literalCount + distanceCount];
+        for (int i = 0; i < lengths.length; ) {
+            int symbol = codeLengthDecoder.decode(reader);
+            int value = 0;
+            int repeat = 1;
+            if (symbol < 16) {
+                value = symbol;
+            } else if (symbol == 16) {
+                if (i == 0) {
+                    throw new IOException("Repeat without a previous code length");
+                }
+                value = lengths[i - 1];
+                repeat = 3 + reader.readBits(2);
+            } else if (symbol == 17) {
+                repeat = 3 + reader.readBits(3);
+            } else {
+                repeat = 11 + reader.readBits(7);
+            }
+            if (i + repeat > lengths.length) {
+                throw new IOException("Too many code lengths");
+            }
+            Arrays.fill(lengths, i, i + repeat, value);
+            i += repeat;
+        }
+        if (lengths[END_OF_BLOCK] == 0) {
+            throw new IOException("Missing end of block code");
+        }
+
+        CodeDecoder literalDecoder = new CodeDecoder(Arrays.copyOf(lengths, literalCount));
+        CodeDecoder distanceDecoder = new CodeDecoder(Arrays.copyOfRange(lengths, literalCount, lengths.length));
+        inflateBlock(reader, window, literalDecoder, distanceDecoder);
+    }
+
+    // Decodes literals and matches until the end of block symbol
+    private static void inflateBlock(LsbBitReader reader, InflateWindow window, CodeDecoder literalDecoder,
+                                     CodeDecoder distanceDecoder) throws IOException {
+        while (true) {
+            int symbol = literalDecoder.decode(reader);
+            if (symbol < 256) {
+                window.put(symbol);
+            } else if (symbol == END_OF_BLOCK) {
+                return;
+            } else {
+                int lengthCode = symbol - 257;
+                if (lengthCode >= LENGTH_BASE.length) {
+                    throw new IOException("Invalid length code");
+                }
+                int length = LENGTH_BASE[lengthCode] + reader.readBits(LENGTH_EXTRA[lengthCode]);
+                int distanceCode = distanceDecoder.decode(reader);
+                if (distanceCode >= DISTANCE_BASE.length) {
+                    throw new IOException("Invalid distance code");
+                }
+                int distance = DISTANCE_BASE[distanceCode] + reader.readBits(DISTANCE_EXTRA[distanceCode]);
+                window.copy(distance, length);
+            }
+        }
+    }
+
+    // Decodes canonical Huffman codes sent first bit first, with a lookup table for short codes
+    private static class CodeDecoder {
+        private static final int TABLE_BITS = 9; // Bits resolved by a single table lookup
+
+        private final int[] table = new int[1 << TABLE_BITS]; // Symbol and code length for each TABLE_BITS-bit prefix
+        private final int[] lengthCounts = new int[Huffman.MAX_CODE_LENGTH + 1]; // Number of codes of each length
+        private final int[] sortedSymbols; // Symbols in canonical code order
+
+        CodeDecoder(int[] lengths) throws IOException {
+            for (int length : lengths) {
+                lengthCounts[length]++;
+            }
+            lengthCounts[0] = 0;
+
+            int left = 1; // Reject over-subscribed code sets
+            for (int length = 1; length <= Huffman.MAX_CODE_LENGTH; length++) {
+                left = (left << 1) - lengthCounts[length];
+                if (left < 0) {
+                    throw new IOException("Invalid Huffman code lengths");
+                }
+            }
+
+            int[] offsets = new int[Huffman.MAX_CODE_LENGTH + 2];
+            for (int length = 1; length <= Huffman.MAX_CODE_LENGTH; length++) {
+                offsets[length + 1] = offsets[length] + lengthCounts[length];
+            }
+            sortedSymbols = new int[offsets[Huffman.MAX_CODE_LENGTH + 1]];
+            int[] codes = reversedCodes(lengths);
+            for (int symbol = 0; symbol < lengths.length; symbol++) {
+                int length = lengths[symbol];
+                if (length == 0) {
+                    continue;
+                }
+                sortedSymbols[offsets[length]++] = symbol;
+                for (int index = codes[symbol]; length <= TABLE_BITS && index < table.length; index += 1 << length) {
+                    table[index] = (length << 16) | symbol; // Every index ending with the reversed code
+                }
+            }
+        }
+
+        int decode(LsbBitReader reader) throws IOException {
+            int entry = table[reader.peekBits(TABLE_BITS)];
+            if (entry != 0) {
+                reader.consume(entry >>> 16);
+                return entry & 0xFFFF;
+            }
+
+            // Long code: read it bit by bit and look it up by length
+            int code = 0;
+            int first = 0;
+            int index = 0;
+            for (int length = 1; length <= Huffman.MAX_CODE_LENGTH; length++) {
+                code |= reader.readBits(1);
+                int count = lengthCounts[length];
+                if (code - first < count) {
+                    return sortedSymbols[index + code - first];
+                }
+                index += count;
+                first = (first + count) << 1;
+                code <<= 1;
+            }
+            throw new IOException("Invalid Huffman code");
+        }
+    }
+
+    // The last 32 KB of output, flushed to the stream in 64 KB pieces
+    private static class InflateWindow {
+        private static final int SIZE = 1 << 16;
+        private static final int MASK = SIZE - 1;
+
+        private final byte[] buffer = new byte[SIZE];
+        private final OutputStream out;
+        private final Checksum checksum; // Updated with every flushed byte, may be null
+        private int position = 0; // Next write position in the buffer
+        private int flushed = 0; // Bytes before this position were written out
+        private long totalLength = 0;
+
+        InflateWindow(OutputStream out, Checksum checksum) {
+            this.out = out;
+            this.checksum = checksum;
+        }
+
+        void put(int b) throws IOException {
+            buffer[position++] = (byte) b;
+            totalLength++;
+            if (position == SIZE) {
+                flush();
+                position = 0;
+                flushed = 0;
+            }
+        }
+
+        void copy(int distance, int length) throws IOException {
+            if (distance > totalLength || distance > MAX_DISTANCE) {
+                throw new IOException("Distance too far back");
+            }
+            for (int i = 0; i < length; i++) {
+                put(buffer[(position - distance) & MASK]);
+            }
+        }
+
+        void flush() throws IOException {
+            out.write(buffer, flushed, position - flushed);
+            if (checksum != null) {
+                checksum.update(buffer, flushed, position - flushed);
+            }
+            flushed = position;
+        }
+
+        long getTotalLength() {
+            return totalLength;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package deflate;
+
+// Tag class: a literal byte or a match referring back into the window
+class Tag {
+    private final short offset;
+    private final short length;
+    private final byte next;
+
+    // Constants for bit manipulation
+    public static final int FLAG_BITS = 1; // Flag telling literals (0) from matches (1)
+    public static final int LITERAL_BITS = 8; // 8 bits for a literal byte
+    public static final int OFFSET_CLASS_BITS = 4; // Number of significant offset bits, stored in 4 bits
+
+    // Constructor for creating a Tag object with given attributes
+    Tag(short offset, short length, byte next) {
+        this.offset = offset;
+        this.length = length;
+        this.next = next;
+    }
+
+    // Creates a tag for a single literal byte
+    public static Tag literal(byte next) {
+        return new Tag((short) 0, (short) 0, next);
+    }
+
+    // Creates a tag for a match of the given length, offset bytes back
+    public static Tag match(int offset, int length) {
+        return new Tag((short) offset, (short) length, (byte) 0);
+    }
+
+    // Getter for the offset attribute
+    public short getOffset() {
+        return offset;
+    }
+
+    // Getter for the length attribute
+    public short getLength() {
+        return length;
+    }
+
+    // Getter for the literal byte
+    public byte getNext() {
+        return next;
+    }
+
+    // Indicates whether the tag is a literal byte rather than a match
+    public boolean isLiteral() {
+        return length == 0;
+    }
+
+    // Writes the tag: flag and literal byte, or flag, length and offset
+    public void writeTo(BitWriter writer) {
+        if (isLiteral()) {
+            writeLiteral(writer, next);
+        } else {
+            writeMatch(writer, offset, length);
+        }
+    }
+
+    // Writes a literal tag for the byte
+    static void writeLiteral(BitWriter writer, byte value) {
+        writer.writeBits(value & 0xFF, FLAG_BITS + LITERAL_BITS); // The flag bit is zero
+    }
+
+    // Writes a match tag for the offset and length
+    static void writeMatch(BitWriter writer, int offset, int length) {
+        writer.writeBits(1, FLAG_BITS);
+        writeGamma(writer, length - LZ77.MIN_MATCH + 1); // Short matches are the most common
+
+        int offsetBits = 32 - Integer.numberOfLeadingZeros(offset); // Number of significant offset bits
+        writer.writeBits(offsetBits, OFFSET_CLASS_BITS);
+        writer.writeBits(offset, offsetBits - 1); // The leading one bit is implied
+    }
+
+    // Reads a tag written by writeTo
+    public static Tag readFrom(BitReader reader) {
+        if (!reader.readBit()) {
+            return literal((byte) reader.readBits(LITERAL_BITS));
+        }
+
+        int length = readGamma(reader) + LZ77.MIN_MATCH - 1;
+        int offsetBits = (int) reader.readBits(OFFSET_CLASS_BITS);
+        if (offsetBits == 0) {
+            throw new IllegalArgumentException("Corrupt tag");
+        }
+        int offset = (1 << (offsetBits - 1)) | (int) reader.readBits(offsetBits - 1);
+        return match(offset, length);
+    }
+
+    // Writes a positive number as an Elias gamma code: n - 1 zero bits, then the n-bit number
+    static void writeGamma(BitWriter writer, int value) {
+        int bits = 32 - Integer.numberOfLeadingZeros(value);
+        writer.writeBits(0, bits - 1);
+        writer.writeBits(value, bits);
+    }
+
+    // Reads a number written by writeGamma
+    static int readGamma(BitReader reader) {
+        int zeros = Integer.numberOfLeadingZeros(reader.peek(32));
+        if (zeros > 30) {
+            throw new IllegalArgumentException("Corrupt tag");
+        }
+        reader.consume(zeros);
+        return (int) reader.readBits(zeros + 1);
+    }
+}
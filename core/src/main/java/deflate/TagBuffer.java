@@ -0,0 +1,78 @@
+package deflate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Growable buffer of LZ77 tags packed into longs: a literal is its byte value, a match has its length in the
+// upper 32 bits and its offset in the lower 32 bits (a match is never shorter than MIN_MATCH, so a zero
+// length marks a literal), wide enough for the offsets and lengths of long-range matches. Encoders fill it
+// instead of a List<Tag>, so no object is created per tag, and the same buffer is cleared and reused for
+// the next block.
+class TagBuffer {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private long[] tags = new long[INITIAL_CAPACITY];
+    private int size; // Number of tags in the buffer
+
+    // Removes all tags, keeping the storage
+    public void clear() {
+        size = 0;
+    }
+
+    // Makes room for at least capacity tags
+    public void ensureCapacity(int capacity) {
+        if (capacity > tags.length) {
+            tags = Arrays.copyOf(tags, Math.max(capacity, tags.length * 2));
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Appends a literal byte
+    public void addLiteral(byte value) {
+        if (size == tags.length) {
+            ensureCapacity(size + 1);
+        }
+        tags[size++] = value & 0xFF;
+    }
+
+    // Appends a match of the given length, offset bytes back
+    public void addMatch(int offset, int length) {
+        if (size == tags.length) {
+            ensureCapacity(size + 1);
+        }
+        tags[size++] = (long) length << 32 | offset;
+    }
+
+    // Indicates whether the tag at the index is a literal byte rather than a match
+    public boolean isLiteral(int index) {
+        return tags[index] >>> 32 == 0;
+    }
+
+    // Literal byte of the tag at the index
+    public byte getLiteral(int index) {
+        return (byte) tags[index];
+    }
+
+    // Match length of the tag at the index, 0 for a literal
+    public int getLength(int index) {
+        return (int) (tags[index] >>> 32);
+    }
+
+    // Match offset of the tag at the index
+    public int getOffset(int index) {
+        return (int) tags[index];
+    }
+
+    // Copies the tags into a list of Tag objects, whose offsets and lengths must fit the regular window
+    public List<Tag> toList() {
+        List<Tag> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(isLiteral(i) ? Tag.literal(getLiteral(i)) : Tag.match(getOffset(i), getLength(i)));
+        }
+        return list;
+    }
+}
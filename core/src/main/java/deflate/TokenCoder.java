@@ -0,0 +1,221 @@
+package deflate;
+
+// Entropy codes LZ77 tags the way deflate does: literals and match lengths share one Huffman alphabet,
+// match offsets have their own, and the low bits of long lengths and far offsets follow their codes as
+// extra bits. The tags of a block are coded in segments; each segment either keeps the codes of the
+// segment before or starts with new ones, whichever is smaller, so the codes follow the statistics. Blocks
+// with long-range matches use long codes: the same codes, with more of them for the longer lengths and
+// farther offsets.
+class TokenCoder {
+    private static final int SEGMENT_TAGS = 1 << 14; // Tags per segment
+    private static final int SHORT_LENGTH_CODES = 8; // Length codes without extra bits
+    private static final int SHORT_OFFSET_CODES = 4; // Offset codes without extra bits
+
+    public static final int LENGTH_CODES = lengthCode(LZ77.MAX_LENGTH) + 1;
+    public static final int OFFSET_CODES = offsetCode(LZ77.WINDOW_SIZE) + 1;
+    public static final int LITERAL_LENGTH_SYMBOLS = 256 + LENGTH_CODES; // Literals, then one symbol per length code
+    public static final int LONG_LENGTH_CODES = lengthCode(LZ77.MAX_LONG_LENGTH) + 1;
+    public static final int LONG_OFFSET_CODES = offsetCode(LZ77.MAX_LONG_WINDOW) + 1;
+    public static final int LONG_LITERAL_LENGTH_SYMBOLS = 256 + LONG_LENGTH_CODES;
+
+    // Length code of a match length: the first codes stand for one length each, then every code covers
+    // twice as many lengths per group of four codes, as in deflate
+    public static int lengthCode(int length) {
+        int value = length - LZ77.MIN_MATCH;
+        if (value < SHORT_LENGTH_CODES) {
+            return value;
+        }
+        int bits = 31 - Integer.numberOfLeadingZeros(value);
+        return 4 * (bits - 1) + ((value >>> (bits - 2)) & 3);
+    }
+
+    // Number of extra bits after a length code
+    public static int lengthExtraBits(int code) {
+        return code < SHORT_LENGTH_CODES ? 0 : code / 4 - 1;
+    }
+
+    // Shortest length of a length code
+    private static int lengthBase(int code) {
+        if (code < SHORT_LENGTH_CODES) {
+            return code + LZ77.MIN_MATCH;
+        }
+        return ((4 + (code & 3)) << lengthExtraBits(code)) + LZ77.MIN_MATCH;
+    }
+
+    // Offset code of a match offset: two codes for each power of two, as in deflate
+    public static int offsetCode(int offset) {
+        int value = offset - 1;
+        if (value < SHORT_OFFSET_CODES) {
+            return value;
+        }
+        int bits = 31 - Integer.numberOfLeadingZeros(value);
+        return 2 * bits + ((value >>> (bits - 1)) & 1);
+    }
+
+    // Number of extra bits after an offset code
+    public static int offsetExtraBits(int code) {
+        return code < SHORT_OFFSET_CODES ? 0 : code / 2 - 1;
+    }
+
+    // Smallest offset of an offset code
+    private static int offsetBase(int code) {
+        if (code < SHORT_OFFSET_CODES) {
+            return code + 1;
+        }
+        return ((2 + (code & 1)) << offsetExtraBits(code)) + 1;
+    }
+
+    // Whether the tags have a match too long or too far for the regular codes
+    public static boolean needsLongCodes(TagBuffer tags) {
+        for (int i = 0; i < tags.size(); i++) {
+            if (tags.getLength(i) > LZ77.MAX_LENGTH || tags.getOffset(i) > LZ77.WINDOW_SIZE) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Codes the tags, the decoder needs the number of bytes they cover to find the end. The number of codes
+    // of each length in the codes written is added to codeLengthCounts, if it isn't null.
+    public static byte[] encode(TagBuffer tags, int[] codeLengthCounts) {
+        BitWriter writer = new BitWriter(tags.size() + 64);
+        encode(tags, writer, codeLengthCounts, false);
+        return writer.toByteArray();
+    }
+
+    // Codes the tags into the writer, after the bits already written, with the long codes if longCodes is set
+    public static void encode(TagBuffer tags, BitWriter writer, int[] codeLengthCounts, boolean longCodes) {
+        int literalLengthSymbols = longCodes ? LONG_LITERAL_LENGTH_SYMBOLS : LITERAL_LENGTH_SYMBOLS;
+        int offsetSymbols = longCodes ? LONG_OFFSET_CODES : OFFSET_CODES;
+        int[] literalLengths = null; // Code lengths of the current segment, null before the first
+        int[] offsetLengths = null;
+        int[] literalCodes = null;
+        int[] offsetCodes = null;
+
+        for (int first = 0; first < tags.size(); first += SEGMENT_TAGS) {
+            int last = Math.min(tags.size(), first + SEGMENT_TAGS);
+            int[] literalFrequencies = new int[literalLengthSymbols];
+            int[] offsetFrequencies = new int[offsetSymbols];
+            for (int i = first; i < last; i++) {
+                if (tags.isLiteral(i)) {
+                    literalFrequencies[tags.getLiteral(i) & 0xFF]++;
+                } else {
+                    literalFrequencies[256 + lengthCode(tags.getLength(i))]++;
+                    offsetFrequencies[offsetCode(tags.getOffset(i))]++;
+                }
+            }
+
+            // New codes pay for their code lengths, the current ones can only be kept if they cover every symbol
+            int[] newLiteralLengths = Huffman.buildCodeLengths(literalFrequencies, Huffman.MAX_CODE_LENGTH);
+            int[] newOffsetLengths = Huffman.buildCodeLengths(offsetFrequencies, Huffman.MAX_CODE_LENGTH);
+            long newBits = codeLengthsBits(newLiteralLengths) + codeLengthsBits(newOffsetLengths)
+                    + codedBits(literalFrequencies, newLiteralLengths) + codedBits(offsetFrequencies, newOffsetLengths);
+            long keptBits = Long.MAX_VALUE;
+            if (literalLengths != null) {
+                long keptLiteralBits = codedBits(literalFrequencies, literalLengths);
+                long keptOffsetBits = codedBits(offsetFrequencies, offsetLengths);
+                if (keptLiteralBits != Long.MAX_VALUE && keptOffsetBits != Long.MAX_VALUE) {
+                    keptBits = keptLiteralBits + keptOffsetBits;
+                }
+            }
+
+            if (newBits < keptBits) {
+                writer.writeBits(1, 1);
+                Huffman.writeCodeLengths(writer, newLiteralLengths);
+                Huffman.writeCodeLengths(writer, newOffsetLengths);
+                literalLengths = newLiteralLengths;
+                offsetLengths = newOffsetLengths;
+                literalCodes = Huffman.buildCanonicalCodes(literalLengths);
+                offsetCodes = Huffman.buildCanonicalCodes(offsetLengths);
+                if (codeLengthCounts != null) {
+                    Huffman.countCodeLengths(literalLengths, codeLengthCounts);
+                    Huffman.countCodeLengths(offsetLengths, codeLengthCounts);
+                }
+            } else {
+                writer.writeBits(0, 1);
+            }
+
+            for (int i = first; i < last; i++) {
+                if (tags.isLiteral(i)) {
+                    int literal = tags.getLiteral(i) & 0xFF;
+                    writer.writeBits(literalCodes[literal], literalLengths[literal]);
+                    continue;
+                }
+                int length = tags.getLength(i);
+                int lengthCode = lengthCode(length);
+                writer.writeBits(literalCodes[256 + lengthCode], literalLengths[256 + lengthCode]);
+                writer.writeBits(length - lengthBase(lengthCode), lengthExtraBits(lengthCode));
+
+                int offset = tags.getOffset(i);
+                int offsetCode = offsetCode(offset);
+                writer.writeBits(offsetCodes[offsetCode], offsetLengths[offsetCode]);
+                writer.writeBits(offset - offsetBase(offsetCode), offsetExtraBits(offsetCode));
+            }
+        }
+    }
+
+    // Decodes tags written by encode from the offset on into the decompressor's tag buffer, until they cover
+    // blockLength bytes. The decompressor's code length arrays and decoders are reused for every segment.
+    public static void decode(byte[] data, int offset, int blockLength, Decompressor context, boolean longCodes) {
+        BitReader reader = new BitReader(data, offset, data.length);
+        int[] literalLengths = longCodes ? context.longLiteralLengths : context.literalLengths;
+        int[] offsetLengths = longCodes ? context.longOffsetLengths : context.offsetLengths;
+        int maxLength = longCodes ? LZ77.MAX_LONG_LENGTH : LZ77.MAX_LENGTH;
+        int maxOffset = longCodes ? LZ77.MAX_LONG_WINDOW : LZ77.WINDOW_SIZE;
+        HuffmanDecoder literalDecoder = context.literalDecoder;
+        HuffmanDecoder offsetDecoder = context.offsetDecoder;
+        TagBuffer tags = context.tags;
+        tags.clear();
+
+        long covered = 0; // Bytes covered by the tags so far
+        while (covered < blockLength) {
+            if (tags.size() % SEGMENT_TAGS == 0) {
+                if (reader.readBit()) {
+                    Huffman.readCodeLengths(reader, literalLengths);
+                    Huffman.readCodeLengths(reader, offsetLengths);
+                    literalDecoder.reset(literalLengths);
+                    offsetDecoder.reset(offsetLengths);
+                } else if (tags.size() == 0) {
+                    throw new IllegalArgumentException("Corrupt Huffman header");
+                }
+            }
+
+            int symbol = literalDecoder.decode(reader);
+            if (symbol < 256) {
+                tags.addLiteral((byte) symbol);
+                covered++;
+                continue;
+            }
+            int lengthCode = symbol - 256;
+            int length = lengthBase(lengthCode) + (int) reader.readBits(lengthExtraBits(lengthCode));
+            int offsetCode = offsetDecoder.decode(reader);
+            int matchOffset = offsetBase(offsetCode) + (int) reader.readBits(offsetExtraBits(offsetCode));
+            if (length > maxLength || matchOffset > maxOffset) {
+                throw new IllegalArgumentException("Corrupt tag");
+            }
+            tags.addMatch(matchOffset, length);
+            covered += length;
+        }
+    }
+
+    // Size of the code lengths as written by Huffman.writeCodeLengths
+    private static long codeLengthsBits(int[] codeLengths) {
+        BitWriter writer = new BitWriter(codeLengths.length);
+        Huffman.writeCodeLengths(writer, codeLengths);
+        return writer.getBitCount();
+    }
+
+    // Bits taken by the symbols with the code lengths, Long.MAX_VALUE if a used symbol has no code
+    private static long codedBits(int[] frequencies, int[] codeLengths) {
+        long bits = 0;
+        for (int symbol = 0; symbol < frequencies.length; symbol++) {
+            if (frequencies[symbol] != 0) {
+                if (codeLengths[symbol] == 0) {
+                    return Long.MAX_VALUE;
+                }
+                bits += (long) frequencies[symbol] * codeLengths[symbol];
+            }
+        }
+        return bits;
+    }
+}
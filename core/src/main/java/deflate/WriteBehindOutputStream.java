@@ -0,0 +1,145 @@
+package deflate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Objects;
+import java.util.concurrent.Future;
+
+// Output stream to a file that writes behind the caller: a full buffer is handed to an asynchronous
+// channel and the caller goes on filling the next one. Up to WRITE_BEHIND buffers are being written at a
+// time; when all of them are, the caller waits for the oldest write and reuses its buffer. The first bytes
+// go into a small heap buffer, so a small file is written without allocating direct buffers. Write errors
+// surface on a later write, flush or close.
+class WriteBehindOutputStream extends OutputStream {
+    public static final int BUFFER_SIZE = 1 << 20; // Bytes per write
+    public static final int FIRST_BUFFER_SIZE = 1 << 16; // Bytes of the first write, in a heap buffer
+    public static final int WRITE_BEHIND = 4; // Buffers in flight
+
+    private final AsynchronousFileChannel channel;
+    private final Deque<Write> writes = new ArrayDeque<>(); // Writes in flight, in file order
+    private final Deque<ByteBuffer> free = new ArrayDeque<>(); // Direct buffers to fill
+    private int allocated = 0; // Direct buffers made so far, at most WRITE_BEHIND
+    private long position = 0; // File offset where the current buffer goes
+    private ByteBuffer current; // Buffer being filled, null until the first write
+    private boolean closed = false;
+
+    // A write of a buffer at a file position
+    private static class Write {
+        final ByteBuffer buffer;
+        final long position;
+        final Future<Integer> result;
+
+        Write(ByteBuffer buffer, long position, Future<Integer> result) {
+            this.buffer = buffer;
+            this.position = position;
+            this.result = result;
+        }
+    }
+
+    // Creates or truncates the file
+    public WriteBehindOutputStream(Path path) throws IOException {
+        this.channel = AsynchronousFileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+        ensureOpen();
+        while (len > 0) {
+            if (current == null) {
+                current = takeBuffer();
+            }
+            int count = Math.min(len, current.remaining());
+            current.put(b, off, count);
+            off += count;
+            len -= count;
+            if (!current.hasRemaining()) {
+                startWrite();
+            }
+        }
+    }
+
+    // Writes the buffered bytes and waits until every write has reached the channel
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        if (current != null && current.position() > 0) {
+            startWrite();
+        }
+        while (!writes.isEmpty()) {
+            recycle(complete(writes.poll()));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            flush();
+        } finally {
+            closed = true;
+            channel.close();
+        }
+    }
+
+    // Hands the current buffer to the channel
+    private void startWrite() {
+        int length = current.flip().remaining(); // Taken first, the channel moves the buffer's position
+        writes.add(new Write(current, position, channel.write(current, position)));
+        position += length;
+        current = null;
+    }
+
+    // The heap buffer for the first write, then a free buffer, a new one while fewer than WRITE_BEHIND exist,
+    // or else the buffer of the oldest write
+    private ByteBuffer takeBuffer() throws IOException {
+        if (position == 0 && writes.isEmpty()) {
+            return ByteBuffer.allocate(FIRST_BUFFER_SIZE);
+        }
+        while (free.isEmpty()) {
+            if (allocated < WRITE_BEHIND) {
+                allocated++;
+                return ByteBuffer.allocateDirect(BUFFER_SIZE);
+            }
+            recycle(complete(writes.poll()));
+        }
+        return free.poll().clear();
+    }
+
+    // Keeps a written buffer for reuse, the heap buffer of the first write is dropped
+    private void recycle(ByteBuffer buffer) {
+        if (buffer.isDirect()) {
+            free.add(buffer);
+        }
+    }
+
+    // Waits for the write and finishes it if the channel took fewer bytes, returns its buffer
+    private ByteBuffer complete(Write write) throws IOException {
+        ByteBuffer buffer = write.buffer;
+        ReadAheadInputStream.await(write.result);
+        while (buffer.hasRemaining()) {
+            ReadAheadInputStream.await(channel.write(buffer, write.position + buffer.position()));
+        }
+        return buffer;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+}
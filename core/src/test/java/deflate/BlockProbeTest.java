@@ -0,0 +1,74 @@
+package deflate;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+// The block type chosen from a sample of the block, and the blocks written with it
+class BlockProbeTest {
+    private static final byte[] PAGE = ("<tr><td>Java.html</td><td>80.479</td><td>33.356</td></tr>\n"
+            + "<tr><td>RTU.html</td><td>83.069</td><td>30.93</td></tr>\n").repeat(400)
+            .getBytes(StandardCharsets.US_ASCII);
+
+    @Test
+    void repeatingTextGetsTokens() {
+        assertEquals(Archive.BLOCK_TOKENS, BlockProbe.probe(PAGE, 0, PAGE.length));
+    }
+
+    @Test
+    void randomBytesAreStored() {
+        byte[] data = new byte[100_000];
+        new Random(1).nextBytes(data);
+        assertEquals(Archive.BLOCK_STORED, BlockProbe.probe(data, 0, data.length));
+        assertEquals(Archive.BLOCK_STORED, BlockProbe.probe(data, 1000, 1000 + BlockProbe.MIN_BLOCK_LENGTH));
+    }
+
+    @Test
+    void fewDistinctBytesWithoutRepeatsGetLiterals() {
+        // 32 values give 5 bits per byte, and 4-byte strings almost never repeat within a chunk
+        byte[] data = new byte[100_000];
+        Random random = new Random(2);
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) ('A' + random.nextInt(32));
+        }
+        assertEquals(Archive.BLOCK_LITERALS, BlockProbe.probe(data, 0, data.length));
+    }
+
+    @Test
+    void smallBlocksAreAlwaysCompressed() {
+        byte[] data = new byte[BlockProbe.MIN_BLOCK_LENGTH];
+        new Random(3).nextBytes(data);
+        assertEquals(Archive.BLOCK_TOKENS, BlockProbe.probe(data, 0, data.length - 1));
+    }
+
+    @Test
+    void blocksAreWrittenWithTheChosenType() throws IOException {
+        Random random = new Random(4);
+        byte[] noise = new byte[50_000];
+        random.nextBytes(noise);
+        byte[] archive = assertWrittenAs(Archive.BLOCK_STORED, noise);
+        // A stored block takes its bytes, the type and the checksum
+        assertEquals(noise.length + 1 + Archive.CHECKSUM_SIZE,
+                ByteBuffer.wrap(archive).getInt(Archive.HEADER_SIZE + 4));
+
+        byte[] letters = new byte[50_000];
+        for (int i = 0; i < letters.length; i++) {
+            letters[i] = (byte) ('A' + random.nextInt(32));
+        }
+        assertWrittenAs(Archive.BLOCK_LITERALS, letters);
+        assertWrittenAs(Archive.BLOCK_TOKENS, PAGE);
+    }
+
+    // Checks the type byte of the archive's single block and that it round trips, returns the archive
+    private static byte[] assertWrittenAs(int type, byte[] data) throws IOException {
+        byte[] archive = Main.compress(data, LZ77.DEFAULT_LEVEL);
+        assertEquals(type, archive[Archive.HEADER_SIZE + Archive.BLOCK_HEADER_SIZE]);
+        assertArrayEquals(data, Main.decompress(archive));
+        return archive;
+    }
+}
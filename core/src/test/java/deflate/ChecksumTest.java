@@ -0,0 +1,97 @@
+package deflate;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Block and stream checksums in archives, and comparing files through mapped windows
+class ChecksumTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void blockChecksumCatchesAFlipInStoredBytes() {
+        byte[] data = new byte[1000];
+        new Random(1).nextBytes(data); // Stored, so the flipped byte decodes without complaint
+        byte[] archive = Main.compress(data, LZ77.DEFAULT_LEVEL);
+        archive[Archive.HEADER_SIZE + Archive.BLOCK_HEADER_SIZE + 100] ^= 1;
+        IOException e = assertThrows(IOException.class, () -> Main.decompress(archive));
+        assertEquals("Block checksum mismatch", e.getMessage());
+    }
+
+    @Test
+    void streamChecksumCatchesAChangedTrailer() throws IOException {
+        byte[] data = new byte[1000];
+        new Random(2).nextBytes(data);
+        byte[] archive = Main.compress(data, LZ77.DEFAULT_LEVEL);
+        // The stream checksum comes before the index entry of the single block and the index footer
+        archive[archive.length - BlockIndex.FOOTER_SIZE - 8 - 1] ^= 1;
+        IOException e = assertThrows(IOException.class, () -> Main.decompress(archive));
+        assertEquals("Stream checksum mismatch", e.getMessage());
+
+        Path file = Files.write(directory.resolve("archive.dfl"), archive);
+        e = assertThrows(IOException.class, () -> ParallelDeflate.decompress(file, new ByteArrayOutputStream(), 2));
+        assertEquals("Stream checksum mismatch", e.getMessage());
+    }
+
+    @Test
+    void checksumsCoverEveryBlock() throws IOException {
+        byte[] data = new byte[10 << 12];
+        new Random(3).nextBytes(data);
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (DeflateOutputStream out = new DeflateOutputStream(archive, LZ77.DEFAULT_LEVEL, 1 << 12)) {
+            out.write(data);
+        }
+        byte[] compressed = archive.toByteArray();
+        assertArrayEquals(data, Main.decompress(compressed));
+
+        // A flip in the last block's bytes
+        int lastBlock = Archive.HEADER_SIZE + 9 * (Archive.BLOCK_HEADER_SIZE + (1 << 12) + 1 + Archive.CHECKSUM_SIZE);
+        compressed[lastBlock + Archive.BLOCK_HEADER_SIZE + 5] ^= 1;
+        IOException e = assertThrows(IOException.class, () -> Main.decompress(compressed));
+        assertEquals("Block checksum mismatch", e.getMessage());
+    }
+
+    @Test
+    void equalComparesContents() throws IOException {
+        String first = write("first", "<p>same</p>");
+        assertTrue(Main.equal(first, write("same", "<p>same</p>")));
+        assertFalse(Main.equal(first, write("other", "<p>sane</p>")));
+        assertFalse(Main.equal(first, write("longer", "<p>same</p>\n")));
+        assertTrue(Main.equal(write("empty", ""), write("empty2", "")));
+        assertFalse(Main.equal(first, directory.resolve("missing").toString()));
+    }
+
+    @Test
+    void equalLooksPastTheFirstMappedWindow() throws IOException {
+        // Sparse files of zeros that differ only in their last byte
+        Path first = directory.resolve("first");
+        Path second = directory.resolve("second");
+        for (Path file : new Path[] {first, second}) {
+            try (RandomAccessFile out = new RandomAccessFile(file.toFile(), "rw")) {
+                out.setLength(MappedInputStream.MAP_WINDOW + 10L);
+            }
+        }
+        assertTrue(Main.equal(first.toString(), second.toString()));
+        try (RandomAccessFile out = new RandomAccessFile(second.toFile(), "rw")) {
+            out.seek(MappedInputStream.MAP_WINDOW + 9L);
+            out.write(1);
+        }
+        assertFalse(Main.equal(first.toString(), second.toString()));
+    }
+
+    private String write(String name, String content) throws IOException {
+        return Files.writeString(directory.resolve(name), content).toString();
+    }
+}
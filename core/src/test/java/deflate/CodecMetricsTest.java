@@ -0,0 +1,118 @@
+package deflate;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+// The process-wide codec counters and the MXBean they are published through
+class CodecMetricsTest {
+    private static final byte[] PAGE = ("<tr><td>Java.html</td><td>80.479</td><td>33.356</td></tr>\n"
+            + "<tr><td>RTU.html</td><td>83.069</td><td>30.93</td></tr>\n").repeat(400)
+            .getBytes(StandardCharsets.US_ASCII);
+
+    private final CodecMetrics metrics = CodecMetrics.get();
+
+    @BeforeEach
+    void reset() {
+        metrics.reset();
+    }
+
+    @Test
+    void countsThePhasesOfARoundTrip() throws IOException {
+        Main.decompress(Main.compress(PAGE, LZ77.DEFAULT_LEVEL));
+
+        Map<String, Long> calls = metrics.getPhaseCalls();
+        assertEquals(Arrays.asList("lz77Encode", "huffmanEncode", "huffmanDecode", "lz77Decode"),
+                calls.keySet().stream().toList());
+        for (long count : calls.values()) {
+            assertTrue(count >= 1);
+        }
+        assertEquals(PAGE.length, metrics.getPhaseBytesIn().get("lz77Encode"));
+        assertEquals(PAGE.length, metrics.getPhaseBytesOut().get("lz77Decode"));
+        assertEquals(1, metrics.getBlockTypeCounts().get("tokens"));
+    }
+
+    @Test
+    void countsTagsAndTheirHistograms() {
+        Main.compress(PAGE, LZ77.DEFAULT_LEVEL);
+
+        long tags = metrics.getTagCount();
+        long literals = metrics.getLiteralCount();
+        assertTrue(tags > 0 && literals > 0 && literals < tags);
+        assertEquals((double) literals / tags, metrics.getLiteralRatio());
+        assertEquals(tags - literals, Arrays.stream(metrics.getMatchLengthHistogram()).sum());
+        assertEquals(tags - literals, Arrays.stream(metrics.getMatchOffsetHistogram()).sum());
+        assertTrue(Arrays.stream(metrics.getCodeLengthHistogram()).sum() > 0);
+        assertEquals(PAGE.length, metrics.getPeakBlockBytes());
+        assertTrue(metrics.getPeakCompressedBytes() < PAGE.length / 10);
+    }
+
+    @Test
+    void countsBlocksOfEachType() {
+        byte[] random = new byte[10_000];
+        new Random(1).nextBytes(random);
+        Main.compress(random, LZ77.DEFAULT_LEVEL);
+        Main.compress(PAGE, LZ77.DEFAULT_LEVEL);
+        Main.compress(PAGE, LZ77.DEFAULT_LEVEL);
+
+        Map<String, Long> types = metrics.getBlockTypeCounts();
+        assertEquals(Arrays.asList("stored", "literals", "tokens", "longTokens"), types.keySet().stream().toList());
+        assertEquals(1, types.get("stored"));
+        assertEquals(2, types.get("tokens"));
+        assertTrue(metrics.toString().contains("blocks {stored=1, literals=0, tokens=2, longTokens=0}"));
+    }
+
+    @Test
+    void resetClearsEveryCounter() {
+        Main.compress(PAGE, LZ77.DEFAULT_LEVEL);
+        metrics.reset();
+        assertEquals(0, metrics.getTagCount());
+        assertEquals(0, metrics.getLiteralRatio());
+        assertEquals(0, metrics.getPeakBlockBytes());
+        assertArrayEquals(new long[Huffman.MAX_CODE_LENGTH + 1], metrics.getCodeLengthHistogram());
+        for (long nanos : metrics.getPhaseNanos().values()) {
+            assertEquals(0, nanos);
+        }
+    }
+
+    @Test
+    void registersOnThePlatformServerOnlyWhenAskedTo() throws JMException {
+        // The tests run without -Ddeflate.metrics.jmx=true or a JMX agent
+        assertFalse(ManagementFactory.getPlatformMBeanServer()
+                .isRegistered(new ObjectName("deflate:type=CodecMetrics")));
+    }
+
+    @Test
+    void isAValidMXBean() throws JMException {
+        MBeanServer server = MBeanServerFactory.newMBeanServer();
+        ObjectName name = new ObjectName("deflate:type=CodecMetrics");
+        server.registerMBean(metrics, name);
+        Main.compress(PAGE, LZ77.DEFAULT_LEVEL);
+
+        assertEquals(metrics.getTagCount(), server.getAttribute(name, "TagCount"));
+        assertArrayEquals(metrics.getMatchLengthHistogram(),
+                (long[]) server.getAttribute(name, "MatchLengthHistogram"));
+        TabularData phases = (TabularData) server.getAttribute(name, "PhaseCalls"); // Maps become tables
+        CompositeData row = phases.get(new Object[] {"lz77Encode"});
+        assertEquals(1L, row.get("value"));
+
+        server.invoke(name, "reset", null, null);
+        assertEquals(0L, server.getAttribute(name, "TagCount"));
+    }
+}
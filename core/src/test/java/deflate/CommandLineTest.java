@@ -0,0 +1,157 @@
+package deflate;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// The batch commands: the files they write and their exit status
+class CommandLineTest {
+    private static final String ROW = "<tr><td>Java.html</td><td>80.479</td><td>33.356</td></tr>\n";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void compressesAndDecompressesFilesNextToThemselves() throws IOException {
+        Path page = write("page.html", ROW.repeat(1000));
+        Path notes = write("notes.txt", "Huffman coding gives frequent symbols short codes.\n".repeat(50));
+        assertEquals(0, run("comp", "-l", "9", "-t", "2", page.toString(), notes.toString()));
+        assertTrue(Files.size(directory.resolve("page.html.dfl")) < Files.size(page) / 10);
+
+        byte[] expected = Files.readAllBytes(page);
+        Files.delete(page);
+        assertEquals(0, run("decomp", directory.resolve("page.html.dfl").toString()));
+        assertArrayEquals(expected, Files.readAllBytes(page));
+    }
+
+    @Test
+    void keepsTheTreeBelowTheOutputDirectory() throws IOException {
+        Path source = Files.createDirectories(directory.resolve("site/docs"));
+        Files.writeString(source.resolve("index.html"), ROW.repeat(100));
+        Path site = directory.resolve("site");
+        Path archives = directory.resolve("archives");
+        Path restored = directory.resolve("restored");
+
+        assertEquals(2, run("comp", "-o", archives.toString(), site.toString())); // A directory needs -r
+        assertEquals(0, run("comp", "-r", "-o", archives.toString(), site.toString()));
+        assertTrue(Files.exists(archives.resolve("docs/index.html.dfl")));
+        assertEquals(0, run("decomp", "-r", "-o", restored.toString(), archives.toString()));
+        assertEquals(ROW.repeat(100), Files.readString(restored.resolve("docs/index.html")));
+    }
+
+    @Test
+    void failedFilesGiveStatusOne() throws IOException {
+        Path page = write("page.html", ROW);
+        Path missing = directory.resolve("missing.html");
+        assertEquals(1, run("comp", page.toString(), missing.toString()));
+        assertTrue(Files.exists(directory.resolve("page.html.dfl"))); // The other file is still done
+        assertEquals(1, run("decomp", page.toString())); // Not an archive
+        assertEquals(1, run("size", page.toString(), missing.toString()));
+    }
+
+    @Test
+    void badArgumentsGiveStatusTwo() throws IOException {
+        String file = write("page.html", ROW).toString();
+        String[][] commands = {
+                {"zip", file},
+                {"comp", "-x", file},
+                {"comp", "-l", "0", file},
+                {"comp", "-l", "fast", file},
+                {"comp", "-l"},
+                {"comp", "-t", "0", file},
+                {"comp", "-L", "15", file},
+                {"comp"},
+                {"equal", file},
+                {"list"},
+                {"train", file},
+                {"solid", file},
+                {"train", "-s", "0", "-o", "dictionary", file},
+        };
+        for (String[] command : commands) {
+            assertEquals(2, run(command), String.join(" ", command));
+        }
+    }
+
+    @Test
+    void equalAndSizeReportOnFiles() throws IOException {
+        Path first = write("first.html", ROW.repeat(10));
+        Path same = write("same.html", ROW.repeat(10));
+        Path other = write("other.html", ROW.repeat(9) + ROW.replace('J', 'K'));
+        assertEquals(0, run("equal", first.toString(), same.toString()));
+        assertEquals(1, run("equal", first.toString(), other.toString()));
+
+        String[] output = new String[1];
+        assertEquals(0, run(output, "size", first.toString()));
+        assertTrue(output[0].contains(ROW.length() * 10 + " bytes"));
+    }
+
+    @Test
+    void trainsADictionaryForSolidArchivesAndFiles() throws IOException {
+        Path samples = Files.createDirectories(directory.resolve("samples"));
+        for (int i = 0; i < 5; i++) {
+            Files.writeString(samples.resolve("page" + i + ".html"), "<html><body>\n" + ROW.repeat(i + 1)
+                    + "<p>page " + i + "</p>\n</body></html>\n");
+        }
+        Path dictionary = directory.resolve("pages.dict");
+        Path archive = directory.resolve("pages.dfs");
+        assertEquals(0, run("train", "-s", "1024", "-r", "-o", dictionary.toString(), samples.toString()));
+        assertEquals(0, run("solid", "-r", "-D", dictionary.toString(), "-o", archive.toString(),
+                samples.toString()));
+
+        String[] output = new String[1];
+        assertEquals(0, run(output, "list", "-D", dictionary.toString(), archive.toString()));
+        assertTrue(output[0].contains("page0.html") && output[0].contains("page4.html"));
+        assertEquals(1, run("list", archive.toString())); // Needs the dictionary
+
+        Path all = directory.resolve("all");
+        assertEquals(0, run("extract", "-D", dictionary.toString(), "-o", all.toString(), archive.toString()));
+        for (int i = 0; i < 5; i++) {
+            String name = "page" + i + ".html";
+            assertArrayEquals(Files.readAllBytes(samples.resolve(name)), Files.readAllBytes(all.resolve(name)));
+        }
+
+        Path some = directory.resolve("some");
+        assertEquals(1, run("extract", "-D", dictionary.toString(), "-o", some.toString(), archive.toString(),
+                "page2.html", "page9.html"));
+        assertTrue(Files.exists(some.resolve("page2.html")));
+        assertFalse(Files.exists(some.resolve("page9.html")));
+
+        Path page = samples.resolve("page3.html");
+        assertEquals(0, run("comp", "-D", dictionary.toString(), page.toString()));
+        Files.delete(page);
+        assertEquals(1, run("decomp", samples.resolve("page3.html.dfl").toString())); // Needs the dictionary
+        assertEquals(0, run("decomp", "-D", dictionary.toString(), samples.resolve("page3.html.dfl").toString()));
+        assertArrayEquals(Files.readAllBytes(all.resolve("page3.html")), Files.readAllBytes(page));
+    }
+
+    private Path write(String name, String content) throws IOException {
+        return Files.writeString(directory.resolve(name), content);
+    }
+
+    private static int run(String... args) {
+        return run(new String[1], args);
+    }
+
+    // Runs the command with its standard output kept in output[0]
+    private static int run(String[] output, String... args) {
+        PrintStream console = System.out;
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(buffer, true, StandardCharsets.UTF_8));
+        try {
+            return CommandLine.run(args);
+        } finally {
+            System.setOut(console);
+            output[0] = buffer.toString(StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package deflate;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+// Round trips and corrupt input for the archive stream written by DeflateOutputStream
+class DeflateStreamTest {
+    private static final int SMALL_BLOCK = 1 << 12; // Many blocks from little data
+    private static final byte[] PAGE = ("<tr><td>Java.html</td><td>80.479</td><td>33.356</td></tr>\n"
+            + "<tr><td>RTU.html</td><td>83.069</td><td>30.93</td></tr>\n").repeat(400)
+            .getBytes(StandardCharsets.US_ASCII);
+
+    @ParameterizedTest
+    @ValueSource(ints = {LZ77.MIN_LEVEL, LZ77.DEFAULT_LEVEL, 9, LZ77.ULTRA_LEVEL})
+    void roundTripsAtEveryLevel(int level) throws IOException {
+        byte[] archive = Main.compress(PAGE, level);
+        assertArrayEquals(PAGE, Main.decompress(archive));
+        assertTrue(archive.length < PAGE.length / 10);
+    }
+
+    @Test
+    void roundTripsEmptyAndTinyInput() throws IOException {
+        for (byte[] data : new byte[][] {new byte[0], {42}, "abcabcabc".getBytes(StandardCharsets.US_ASCII)}) {
+            assertArrayEquals(data, Main.decompress(Main.compress(data, LZ77.DEFAULT_LEVEL)));
+        }
+    }
+
+    @Test
+    void roundTripsManyBlocks() throws IOException {
+        for (boolean independent : new boolean[] {false, true}) {
+            byte[] archive = compress(PAGE, SMALL_BLOCK, independent);
+            assertArrayEquals(PAGE, Main.decompress(archive));
+        }
+    }
+
+    @Test
+    void readsByteByByteWithinOneBlockOfMemory() throws IOException {
+        byte[] archive = compress(PAGE, SMALL_BLOCK, false);
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        try (DeflateInputStream in = new DeflateInputStream(new ByteArrayInputStream(archive))) {
+            for (int b = in.read(); b >= 0; b = in.read()) {
+                data.write(b);
+            }
+            assertEquals(-1, in.read(new byte[10], 0, 10));
+        }
+        assertArrayEquals(PAGE, data.toByteArray());
+    }
+
+    @Test
+    void writesSingleBytesAndSlices() throws IOException {
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (DeflateOutputStream out = new DeflateOutputStream(archive, LZ77.DEFAULT_LEVEL, SMALL_BLOCK)) {
+            out.write(PAGE[0]);
+            out.write(PAGE, 1, 999);
+            out.write(PAGE, 1000, PAGE.length - 1000);
+        }
+        assertArrayEquals(PAGE, Main.decompress(archive.toByteArray()));
+    }
+
+    @Test
+    void rejectsOtherData() {
+        IOException e = assertThrows(IOException.class, () -> Main.decompress(PAGE));
+        assertEquals("Not a compressed archive", e.getMessage());
+    }
+
+    @Test
+    void rejectsOversizedCompressedLength() {
+        // Checked before the block is allocated, so a corrupt length can't run out of memory
+        byte[] archive = Main.compress(PAGE, LZ77.DEFAULT_LEVEL);
+        ByteBuffer.wrap(archive).putInt(Archive.HEADER_SIZE + 4, Integer.MAX_VALUE - 8);
+        IOException e = assertThrows(IOException.class, () -> Main.decompress(archive));
+        assertEquals("Corrupt block header", e.getMessage());
+    }
+
+    @Test
+    void rejectsOversizedBlockLength() {
+        byte[] archive = compress(PAGE, SMALL_BLOCK, false);
+        ByteBuffer.wrap(archive).putInt(Archive.HEADER_SIZE, SMALL_BLOCK + 1);
+        IOException e = assertThrows(IOException.class, () -> Main.decompress(archive));
+        assertEquals("Corrupt block header", e.getMessage());
+    }
+
+    @Test
+    void rejectsReservedBlockTypes() {
+        // Types 0 and 1 were the Huffman-coded tag blocks of the first format, which is no longer read
+        for (byte type = 0; type <= 1; type++) {
+            byte[] archive = Main.compress(PAGE, LZ77.DEFAULT_LEVEL);
+            archive[Archive.HEADER_SIZE + Archive.BLOCK_HEADER_SIZE] = type;
+            IOException e = assertThrows(IOException.class, () -> Main.decompress(archive));
+            assertEquals("Corrupt block data", e.getMessage());
+        }
+    }
+
+    @Test
+    void rejectsArchiveWithoutBlockTypes() {
+        byte[] archive = Main.compress(PAGE, LZ77.DEFAULT_LEVEL);
+        archive[4] &= ~Archive.FLAG_BLOCK_TYPES; // The flags follow the magic number
+        IOException e = assertThrows(IOException.class, () -> Main.decompress(archive));
+        assertEquals("Corrupt archive header", e.getMessage());
+    }
+
+    @Test
+    void rejectsTruncatedArchive() {
+        byte[] archive = Main.compress(PAGE, LZ77.DEFAULT_LEVEL);
+        for (int length : new int[] {0, 3, Archive.HEADER_SIZE, Archive.HEADER_SIZE + 6, archive.length / 2}) {
+            assertThrows(IOException.class, () -> Main.decompress(Arrays.copyOf(archive, length)));
+        }
+    }
+
+    @Test
+    void corruptArchivesFailWithIOException() {
+        byte[] archive = compress(PAGE, SMALL_BLOCK, false);
+        Random random = new Random(1);
+        for (int i = 0; i < 1000; i++) {
+            byte[] corrupt = archive.clone();
+            for (int flips = 1 + random.nextInt(3); flips > 0; flips--) {
+                // Half of the flips go into the headers at the start
+                int position = random.nextInt(random.nextBoolean() ? 64 : corrupt.length);
+                corrupt[position] ^= (byte) (1 << random.nextInt(8));
+            }
+            try {
+                Main.decompress(corrupt);
+            } catch (IOException e) {
+                // Expected for most flips; anything else, such as an OutOfMemoryError, fails the test
+            }
+        }
+    }
+
+    @Test
+    void rejectsBadArguments() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertThrows(IllegalArgumentException.class, () -> new DeflateOutputStream(out, LZ77.MAX_LEVEL + 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> new DeflateOutputStream(out, LZ77.DEFAULT_LEVEL, Archive.MAX_BLOCK_SIZE + 1));
+    }
+
+    private static byte[] compress(byte[] data, int blockSize, boolean independent) {
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (DeflateOutputStream out = new DeflateOutputStream(archive, LZ77.DEFAULT_LEVEL, blockSize, independent)) {
+            out.write(data);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        return archive.toByteArray();
+    }
+}
@@ -0,0 +1,149 @@
+package deflate;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Trained and preset dictionaries: what training keeps, and archives that need one
+class DictionaryTest {
+    private static final String HEAD = "<!DOCTYPE html>\n<html lang=\"lv\">\n<head><meta charset=\"utf-8\">\n"
+            + "<link rel=\"stylesheet\" href=\"/static/style.css\"><title>";
+    private static final String NAVIGATION = "</title></head>\n<body>\n<nav><a href=\"/\">Home</a> | "
+            + "<a href=\"/archive\">Archive</a> | <a href=\"/about\">About</a></nav>\n<main>\n";
+    private static final String FOOT = "</main>\n<footer>Riga Technical University, Faculty of Computer "
+            + "Science</footer>\n</body>\n</html>\n";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void trainingKeepsWhatTheSamplesShare() {
+        Dictionary dictionary = DictionaryTrainer.train(samples(20), 1024);
+        assertTrue(dictionary.getContent().length <= 1024);
+        String content = new String(dictionary.getContent(), StandardCharsets.UTF_8);
+        assertTrue(content.contains("Riga Technical University"));
+        assertTrue(content.contains("<a href=\"/archive\">Archive</a>"));
+    }
+
+    @Test
+    void smallCorpusIsTheDictionary() {
+        List<byte[]> samples = samples(2);
+        Dictionary dictionary = DictionaryTrainer.train(samples, Dictionary.MAX_SIZE);
+        byte[] corpus = new byte[samples.get(0).length + samples.get(1).length];
+        System.arraycopy(samples.get(0), 0, corpus, 0, samples.get(0).length);
+        System.arraycopy(samples.get(1), 0, corpus, samples.get(0).length, samples.get(1).length);
+        assertArrayEquals(corpus, dictionary.getContent());
+    }
+
+    @Test
+    void dictionaryShrinksASmallDocument() throws IOException {
+        Dictionary dictionary = DictionaryTrainer.train(samples(20), 4096);
+        byte[] page = page(100);
+        byte[] plain = compress(page, null);
+        byte[] primed = compress(page, dictionary);
+        assertTrue(primed.length < plain.length * 2 / 3);
+        assertArrayEquals(page, decompress(primed, dictionary));
+    }
+
+    @Test
+    void archiveNeedsItsDictionary() {
+        Dictionary dictionary = DictionaryTrainer.train(samples(20), 4096);
+        byte[] archive = compress(page(100), dictionary);
+        String id = Integer.toHexString(dictionary.getId());
+
+        IOException e = assertThrows(IOException.class, () -> decompress(archive, null));
+        assertEquals("Archive needs dictionary " + id, e.getMessage());
+
+        Dictionary other = new Dictionary("some other content".getBytes(StandardCharsets.US_ASCII));
+        e = assertThrows(IOException.class, () -> decompress(archive, other));
+        assertEquals("Archive needs dictionary " + id + ", not " + Integer.toHexString(other.getId()),
+                e.getMessage());
+    }
+
+    @Test
+    void writesAndLoadsDictionaryFiles() throws IOException {
+        Dictionary dictionary = DictionaryTrainer.train(samples(20), 2048);
+        Path file = directory.resolve("pages.dict");
+        try (OutputStream out = Files.newOutputStream(file)) {
+            dictionary.write(out);
+        }
+        Dictionary loaded = Dictionary.load(file);
+        assertEquals(dictionary.getId(), loaded.getId());
+        assertArrayEquals(dictionary.getContent(), loaded.getContent());
+
+        // Any other file is dictionary content as it is
+        Path plain = Files.write(directory.resolve("page.html"), page(1));
+        assertArrayEquals(page(1), Dictionary.load(plain).getContent());
+
+        byte[] corrupt = Files.readAllBytes(file);
+        ByteBuffer.wrap(corrupt).putInt(4, corrupt.length); // Longer than the rest of the file
+        IOException e = assertThrows(IOException.class, () -> Dictionary.load(Files.write(file, corrupt)));
+        assertEquals("Corrupt dictionary", e.getMessage());
+    }
+
+    @Test
+    void keepsTheEndOfLongContent() {
+        byte[] content = new byte[Dictionary.MAX_SIZE + 100];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        Dictionary dictionary = new Dictionary(content);
+        assertArrayEquals(Arrays.copyOfRange(content, 100, content.length), dictionary.getContent());
+        assertNotEquals(new Dictionary(Arrays.copyOf(content, 100)).getId(), dictionary.getId());
+    }
+
+    @Test
+    void rejectsBadSizes() {
+        assertThrows(IllegalArgumentException.class, () -> DictionaryTrainer.train(samples(2), 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> DictionaryTrainer.train(samples(2), Dictionary.MAX_SIZE + 1));
+    }
+
+    // Pages of a site: the same head, navigation and footer around their own text
+    private static List<byte[]> samples(int count) {
+        List<byte[]> samples = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            samples.add(page(i));
+        }
+        return samples;
+    }
+
+    private static byte[] page(int number) {
+        return (HEAD + "Page " + number + NAVIGATION + "<h1>Lecture " + number + "</h1>\n<p>Notes for week "
+                + (number % 16 + 1) + ", room " + (100 + number * 7) + ".</p>\n" + FOOT)
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] compress(byte[] data, Dictionary dictionary) {
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (DeflateOutputStream out = new DeflateOutputStream(archive, LZ77.DEFAULT_LEVEL,
+                Archive.DEFAULT_BLOCK_SIZE, false, dictionary)) {
+            out.write(data);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        return archive.toByteArray();
+    }
+
+    private static byte[] decompress(byte[] archive, Dictionary dictionary) throws IOException {
+        try (DeflateInputStream in = new DeflateInputStream(new ByteArrayInputStream(archive), dictionary)) {
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package deflate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+// The table-driven decoder: short codes from one lookup, long codes past the table, and invalid codes
+class HuffmanDecoderTest {
+    @Test
+    void decodesShortCodesFromTheTable() {
+        int[] codeLengths = {2, 2, 3, 3, 3, 0, 4, 4};
+        int[] symbols = {0, 1, 2, 3, 4, 6, 7, 7, 6, 4, 3, 2, 1, 0};
+        assertDecodes(codeLengths, symbols);
+    }
+
+    @Test
+    void decodesCodesLongerThanTheTable() {
+        // Fibonacci frequencies give a code with every length up to the limit
+        int[] frequencies = new int[20];
+        frequencies[0] = 1;
+        frequencies[1] = 1;
+        for (int i = 2; i < frequencies.length; i++) {
+            frequencies[i] = frequencies[i - 1] + frequencies[i - 2];
+        }
+        int[] codeLengths = Huffman.buildCodeLengths(frequencies, Huffman.MAX_CODE_LENGTH);
+        assertEquals(Huffman.MAX_CODE_LENGTH, Arrays.stream(codeLengths).max().getAsInt());
+
+        int[] symbols = new int[1000];
+        Random random = new Random(1);
+        for (int i = 0; i < symbols.length; i++) {
+            symbols[i] = i < frequencies.length ? i : random.nextInt(frequencies.length);
+        }
+        assertDecodes(codeLengths, symbols);
+    }
+
+    @Test
+    void resetSwitchesToTheNextCode() {
+        HuffmanDecoder decoder = new HuffmanDecoder(256);
+        int[] first = new int[256];
+        first['a'] = 1;
+        first['b'] = 1;
+        int[] second = new int[256];
+        Arrays.fill(second, 8);
+        for (int[] codeLengths : new int[][] {first, second, first}) {
+            int[] symbols = {'a', 'b', 'b', 'a'};
+            decoder.reset(codeLengths);
+            byte[] data = encode(codeLengths, symbols);
+            BitReader reader = new BitReader(data, 0, data.length);
+            for (int symbol : symbols) {
+                assertEquals(symbol, decoder.decode(reader));
+            }
+        }
+    }
+
+    @Test
+    void rejectsBitsThatAreNoCode() {
+        // With a single one-bit code, every sequence starting with a one bit is invalid
+        int[] codeLengths = new int[256];
+        codeLengths[7] = 1;
+        HuffmanDecoder decoder = new HuffmanDecoder(codeLengths);
+        byte[] data = {0x7F, (byte) 0xFF, (byte) 0xFF};
+        BitReader reader = new BitReader(data, 0, data.length);
+        assertEquals(7, decoder.decode(reader));
+        assertThrows(IllegalArgumentException.class, () -> decoder.decode(reader));
+    }
+
+    private static byte[] encode(int[] codeLengths, int[] symbols) {
+        int[] codes = Huffman.buildCanonicalCodes(codeLengths);
+        BitWriter writer = new BitWriter(symbols.length * 2);
+        for (int symbol : symbols) {
+            writer.writeBits(codes[symbol], codeLengths[symbol]);
+        }
+        return writer.toByteArray();
+    }
+
+    private static void assertDecodes(int[] codeLengths, int[] symbols) {
+        byte[] data = encode(codeLengths, symbols);
+        HuffmanDecoder decoder = new HuffmanDecoder(codeLengths);
+        BitReader reader = new BitReader(data, 0, data.length);
+        for (int symbol : symbols) {
+            assertEquals(symbol, decoder.decode(reader));
+        }
+    }
+}
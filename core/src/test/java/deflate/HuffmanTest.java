@@ -0,0 +1,134 @@
+package deflate;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+// Canonical, length-limited codes and the bit stream they are written to
+class HuffmanTest {
+    @Test
+    void limitsCodeLengthsAndKeepsAPrefixCode() {
+        // Fibonacci frequencies would need codes of 29 bits without the limit
+        int[] frequencies = new int[30];
+        frequencies[0] = 1;
+        frequencies[1] = 1;
+        for (int i = 2; i < frequencies.length; i++) {
+            frequencies[i] = frequencies[i - 1] + frequencies[i - 2];
+        }
+        for (int maxLength : new int[] {8, 12, Huffman.MAX_CODE_LENGTH}) {
+            int[] codeLengths = Huffman.buildCodeLengths(frequencies, maxLength);
+            long kraftSum = 0; // Exactly 2^maxLength for a complete prefix code
+            for (int length : codeLengths) {
+                assertTrue(length >= 1 && length <= maxLength);
+                kraftSum += 1L << (maxLength - length);
+            }
+            assertEquals(1L << maxLength, kraftSum);
+            assertEquals(1, codeLengths[frequencies.length - 1]); // The most frequent symbol
+        }
+    }
+
+    @Test
+    void frequentSymbolsGetShorterCodes() {
+        int[] frequencies = {5, 0, 100, 20, 20, 1};
+        int[] codeLengths = Huffman.buildCodeLengths(frequencies, Huffman.MAX_CODE_LENGTH);
+        assertEquals(0, codeLengths[1]);
+        assertEquals(1, codeLengths[2]);
+        for (int x = 0; x < frequencies.length; x++) {
+            for (int y = 0; y < frequencies.length; y++) {
+                if (frequencies[y] > 0 && frequencies[x] > frequencies[y]) {
+                    assertTrue(codeLengths[x] <= codeLengths[y]);
+                }
+            }
+        }
+    }
+
+    @Test
+    void singleSymbolGetsAOneBitCode() {
+        int[] frequencies = new int[256];
+        frequencies['x'] = 50;
+        int[] codeLengths = Huffman.buildCodeLengths(frequencies, Huffman.MAX_CODE_LENGTH);
+        assertEquals(1, codeLengths['x']);
+    }
+
+    @Test
+    void canonicalCodesAreOrderedByLengthThenSymbol() {
+        int[] codeLengths = {3, 3, 3, 3, 3, 2, 4, 4};
+        int[] codes = Huffman.buildCanonicalCodes(codeLengths);
+        assertArrayEquals(new int[] {0b010, 0b011, 0b100, 0b101, 0b110, 0b00, 0b1110, 0b1111}, codes);
+    }
+
+    @Test
+    void codeLengthsRoundTripThroughTheHeader() {
+        int[] codeLengths = new int[256];
+        codeLengths['a'] = 1;
+        codeLengths['b'] = 2;
+        codeLengths[255] = 2;
+        BitWriter writer = new BitWriter(64);
+        Huffman.writeCodeLengths(writer, codeLengths);
+        byte[] header = writer.toByteArray();
+        assertTrue(header.length < 64); // The unused symbols are stored as runs
+
+        int[] read = new int[256];
+        Huffman.readCodeLengths(new BitReader(header, 0, header.length), read);
+        assertArrayEquals(codeLengths, read);
+    }
+
+    @Test
+    void compressRoundTrips() {
+        byte[] random = new byte[10_000];
+        new Random(1).nextBytes(random);
+        byte[] text = "Huffman coding gives frequent symbols short codes. ".repeat(50)
+                .getBytes(StandardCharsets.US_ASCII);
+        for (byte[] data : new byte[][] {new byte[0], {42}, text, random}) {
+            assertArrayEquals(data, new Huffman().decompress(new Huffman().compress(data)));
+        }
+        assertTrue(new Huffman().compress(text).length < text.length * 3 / 4);
+    }
+
+    @Test
+    void countBytesAddsUpEveryTable() {
+        // Lengths that leave 0 to 3 bytes after the groups of four, runs of one value, and a slice of the data
+        Random random = new Random(3);
+        for (int length = 0; length < 40; length++) {
+            byte[] data = new byte[length + 8];
+            for (int i = 0; i < data.length; i++) {
+                data[i] = (byte) (random.nextBoolean() ? 0xFF : random.nextInt(4));
+            }
+            int[] expected = new int[256];
+            for (int i = 3; i < 3 + length; i++) {
+                expected[data[i] & 0xFF] += 2; // Counted twice below, countBytes adds to the counts
+            }
+            int[] counts = new int[256];
+            Huffman.countBytes(data, 3, 3 + length, counts);
+            Huffman.countBytes(data, 3, 3 + length, counts);
+            assertArrayEquals(expected, counts);
+        }
+
+        byte[] run = new byte[1001];
+        int[] counts = new int[256];
+        Huffman.countBytes(run, 0, run.length, counts);
+        assertEquals(1001, counts[0]);
+    }
+
+    @Test
+    void bitStreamRoundTripsMixedWidths() {
+        Random random = new Random(2);
+        int[] widths = new int[1000];
+        long[] values = new long[widths.length];
+        BitWriter writer = new BitWriter(16);
+        for (int i = 0; i < widths.length; i++) {
+            widths[i] = random.nextInt(33);
+            values[i] = random.nextLong() & ((1L << widths[i]) - 1);
+            writer.writeBits(values[i], widths[i]);
+        }
+        byte[] data = writer.toByteArray();
+        BitReader reader = new BitReader(data, 0, data.length);
+        for (int i = 0; i < widths.length; i++) {
+            assertEquals(values[i], reader.readBits(widths[i]));
+        }
+    }
+}
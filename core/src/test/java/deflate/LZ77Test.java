@@ -0,0 +1,169 @@
+package deflate;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+// The hash chain match finder: the tags each level produces, and that they replay to the input
+class LZ77Test {
+    private static final byte[] PAGE = ("<html>\n<head><title>Deflate</title></head>\n<body>\n"
+            + "<p>LZ77 replaces repeated strings with a reference to an earlier copy.</p>\n"
+            + "<p>Huffman coding gives frequent symbols short codes.</p>\n"
+            + "<p>LZ77 and Huffman coding together make up deflate.</p>\n"
+            + "</body>\n</html>\n").repeat(20).getBytes(StandardCharsets.US_ASCII);
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3, 4, 5, 6, 7, 8, 9})
+    void everyLevelReplaysToTheInput(int level) {
+        TagBuffer tags = new TagBuffer();
+        LZ77.encode(PAGE, 0, PAGE.length, level, LZ77.MAX_LENGTH, tags);
+        assertArrayEquals(PAGE, replay(tags, PAGE.length));
+        assertTrue(tags.size() < PAGE.length / 10); // The page repeats, most of it is matches
+    }
+
+    @Test
+    void findsTheRepeatAtItsOffset() {
+        byte[] data = "abcdefghij-0123456789-abcdefghij".getBytes(StandardCharsets.US_ASCII);
+        TagBuffer tags = new TagBuffer();
+        LZ77.encode(data, 0, data.length, LZ77.DEFAULT_LEVEL, LZ77.MAX_LENGTH, tags);
+        assertEquals(23, tags.size()); // 22 literals and one match
+        assertEquals(22, tags.getOffset(22));
+        assertEquals(10, tags.getLength(22));
+    }
+
+    @Test
+    void lazyLevelsWaitForALongerMatch() {
+        // At "abcdefg" the greedy levels take "abc", the lazy ones a literal and then "bcdefg"
+        byte[] data = "abc!xbcdefg?abcdefg".getBytes(StandardCharsets.US_ASCII);
+        TagBuffer greedy = new TagBuffer();
+        LZ77.encode(data, 0, data.length, 1, LZ77.MAX_LENGTH, greedy);
+        TagBuffer lazy = new TagBuffer();
+        LZ77.encode(data, 0, data.length, 6, LZ77.MAX_LENGTH, lazy);
+
+        assertEquals(14, greedy.size());
+        assertEquals(12, greedy.getOffset(12));
+        assertEquals(3, greedy.getLength(12));
+        assertEquals(4, greedy.getLength(13));
+
+        assertEquals(14, lazy.size());
+        assertTrue(lazy.isLiteral(12));
+        assertEquals(8, lazy.getOffset(13));
+        assertEquals(6, lazy.getLength(13));
+        assertArrayEquals(data, replay(lazy, data.length));
+    }
+
+    @Test
+    void higherLevelsProduceFewerTags() {
+        // Text with many near repeats, where a longer search finds longer matches
+        Random random = new Random(1);
+        String[] words = {"deflate", "inflate", "window", "offset", "length", "literal", "match", "block"};
+        StringBuilder text = new StringBuilder();
+        while (text.length() < 100_000) {
+            text.append(words[random.nextInt(words.length)]).append(random.nextInt(4) == 0 ? ", " : " ");
+        }
+        byte[] data = text.toString().getBytes(StandardCharsets.US_ASCII);
+        int[] sizes = new int[10];
+        for (int level : new int[] {1, 6, 9}) {
+            TagBuffer tags = new TagBuffer();
+            LZ77.encode(data, 0, data.length, level, LZ77.MAX_LENGTH, tags);
+            assertArrayEquals(data, replay(tags, data.length));
+            sizes[level] = tags.size();
+        }
+        assertTrue(sizes[6] < sizes[1]);
+        assertTrue(sizes[9] <= sizes[6]);
+    }
+
+    @Test
+    void runsBecomeOverlappingMatchesUpToTheMaximumLength() {
+        byte[] data = new byte[2500];
+        Arrays.fill(data, (byte) 'a');
+        TagBuffer tags = new TagBuffer();
+        LZ77.encode(data, 0, data.length, LZ77.DEFAULT_LEVEL, 100, tags);
+        assertTrue(tags.isLiteral(0));
+        for (int i = 1; i < tags.size(); i++) {
+            assertEquals(1, tags.getOffset(i));
+            assertTrue(tags.getLength(i) <= 100);
+        }
+        assertArrayEquals(data, replay(tags, data.length));
+    }
+
+    @Test
+    void matchesStayInsideTheWindow() {
+        // The copy of the first kilobyte is too far back to be found, the second copy isn't
+        byte[] data = new byte[2 * LZ77.WINDOW_SIZE];
+        new Random(2).nextBytes(data);
+        System.arraycopy(data, 0, data, LZ77.WINDOW_SIZE + 1000, 1000);
+        System.arraycopy(data, LZ77.WINDOW_SIZE + 5000, data, LZ77.WINDOW_SIZE + 20_000, 1000);
+        TagBuffer tags = new TagBuffer();
+        LZ77.encode(data, 0, data.length, 9, LZ77.MAX_LENGTH, tags);
+        int longMatches = 0;
+        for (int i = 0; i < tags.size(); i++) {
+            if (!tags.isLiteral(i)) {
+                assertTrue(tags.getOffset(i) <= LZ77.WINDOW_SIZE);
+                longMatches += tags.getLength(i) >= 100 ? 1 : 0;
+            }
+        }
+        assertEquals(1, longMatches);
+        assertArrayEquals(data, replay(tags, data.length));
+    }
+
+    @Test
+    void matchesReachIntoTheHistory() {
+        byte[] data = "<p>history</p>|<p>history</p>".getBytes(StandardCharsets.US_ASCII);
+        TagBuffer tags = new TagBuffer();
+        LZ77.encode(data, 15, data.length, LZ77.DEFAULT_LEVEL, LZ77.MAX_LENGTH, tags);
+        assertEquals(1, tags.size());
+        assertEquals(15, tags.getOffset(0));
+        assertEquals(14, tags.getLength(0));
+    }
+
+    @Test
+    void rejectsBadArguments() {
+        TagBuffer tags = new TagBuffer();
+        assertThrows(IllegalArgumentException.class, () -> LZ77.encode(PAGE, 0, 10, 0, LZ77.MAX_LENGTH, tags));
+        assertThrows(IllegalArgumentException.class,
+                () -> LZ77.encode(PAGE, 0, 10, LZ77.MAX_LEVEL + 1, LZ77.MAX_LENGTH, tags));
+        assertThrows(IllegalArgumentException.class,
+                () -> LZ77.encode(PAGE, 0, 10, 1, LZ77.MAX_LENGTH + 1, tags));
+    }
+
+    @Test
+    void matchLengthFindsTheFirstDifferenceInEveryByteOfAWord() {
+        // Every length up to 3 words, with the difference at every position, and the match running to the end
+        // of the data so that the last word and the byte-by-byte tail read up to its last byte
+        for (int maxLength = 0; maxLength <= 3 * Long.BYTES; maxLength++) {
+            for (int difference = 0; difference <= maxLength; difference++) {
+                byte[] data = new byte[5 + 2 * maxLength];
+                Arrays.fill(data, (byte) 'a');
+                int second = data.length - maxLength;
+                if (difference < maxLength) {
+                    data[second + difference] = 'b';
+                }
+                assertEquals(difference, LZ77.matchLength(data, 5, second, maxLength));
+                assertEquals(difference, LZ77.matchLength(data, second, 5, maxLength));
+            }
+        }
+    }
+
+    @Test
+    void matchLengthStopsAtTheMaximum() {
+        byte[] data = new byte[2000];
+        assertEquals(LZ77.MAX_LENGTH, LZ77.matchLength(data, 0, 1, LZ77.MAX_LENGTH));
+        assertEquals(999, LZ77.matchLength(data, 0, 1000, 999));
+        assertEquals(0, LZ77.matchLength(data, 0, 1, 0));
+    }
+
+    private static byte[] replay(TagBuffer tags, int length) {
+        byte[] window = new byte[length];
+        assertEquals(length, LZ77.decompressFromTags(tags, window, 0, length));
+        return window;
+    }
+}
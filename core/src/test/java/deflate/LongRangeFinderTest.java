@@ -0,0 +1,120 @@
+package deflate;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Long-range matches: found far back, kept across blocks as the window slides, and forgotten at checkpoints
+class LongRangeFinderTest {
+    private static final int LONG_WINDOW = 1 << 18;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void findsACopyFarBack() {
+        byte[] data = copy(random(1, 200_000), 10_000, 150_000, 10_000);
+        LongRangeFinder finder = new LongRangeFinder();
+        finder.reset(LONG_WINDOW);
+        assertEquals(1, finder.find(data, 0, data.length));
+        assertEquals(140_000, finder.offsets[0]);
+        assertTrue(finder.starts[0] >= 150_000 && finder.starts[0] + finder.lengths[0] <= 160_000);
+        assertTrue(finder.lengths[0] > 9000); // From the first anchor in the copy to its end
+
+        finder.reset(1 << 17); // Too small to reach the copy
+        assertEquals(0, finder.find(data, 0, data.length));
+    }
+
+    @Test
+    void slidingFindsWhatOneWindowFinds() {
+        byte[] data = copy(random(2, 200_000), 60_000, 150_000, 10_000);
+        LongRangeFinder whole = new LongRangeFinder();
+        whole.reset(LONG_WINDOW);
+        whole.find(data, 0, 100_000);
+        whole.find(data, 100_000, data.length);
+
+        // The same blocks, with the first 50,000 bytes slid out of the window before the second block
+        LongRangeFinder sliding = new LongRangeFinder();
+        sliding.reset(LONG_WINDOW);
+        sliding.find(data, 0, 100_000);
+        sliding.slide(50_000);
+        byte[] window = Arrays.copyOfRange(data, 50_000, data.length);
+        sliding.find(window, 50_000, window.length);
+
+        assertEquals(1, whole.count);
+        assertEquals(whole.count, sliding.count);
+        assertEquals(whole.starts[0] - 50_000, sliding.starts[0]);
+        assertEquals(whole.lengths[0], sliding.lengths[0]);
+        assertEquals(whole.offsets[0], sliding.offsets[0]);
+    }
+
+    @Test
+    void resetStartsFromAnEmptyIndex() {
+        byte[] first = copy(random(3, 100_000), 0, 50_000, 20_000);
+        byte[] second = copy(random(4, 100_000), 10_000, 70_000, 20_000);
+        LongRangeFinder reused = new LongRangeFinder();
+        reused.reset(LONG_WINDOW);
+        reused.find(first, 0, first.length);
+        reused.reset(LONG_WINDOW);
+        reused.find(second, 0, second.length);
+
+        LongRangeFinder fresh = new LongRangeFinder();
+        fresh.reset(LONG_WINDOW);
+        fresh.find(second, 0, second.length);
+        assertEquals(1, fresh.count);
+        assertEquals(fresh.count, reused.count);
+        assertEquals(fresh.starts[0], reused.starts[0]);
+        assertEquals(fresh.offsets[0], reused.offsets[0]);
+    }
+
+    @Test
+    void checkpointedLongRangeStreamsDecodeFromTheCheckpoint() throws IOException {
+        byte[] data = copy(copy(random(5, 400_000), 10_000, 150_000, 30_000), 210_000, 350_000, 30_000);
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        int checkpoint;
+        try (DeflateOutputStream out = new DeflateOutputStream(archive, LZ77.DEFAULT_LEVEL, 1 << 14, false, null,
+                LONG_WINDOW)) {
+            out.write(data, 0, 200_000);
+            checkpoint = out.checkpoint();
+            out.write(data, 200_000, data.length - 200_000);
+        }
+        byte[] compressed = archive.toByteArray();
+        assertTrue(compressed.length < data.length - 50_000); // Both copies were found
+        assertArrayEquals(data, Main.decompress(compressed));
+
+        Path file = Files.write(directory.resolve("archive.dfl"), compressed);
+        try (SeekableArchive seekable = SeekableArchive.open(file)) {
+            ByteArrayOutputStream range = new ByteArrayOutputStream();
+            seekable.copyRange(340_000, 50_000, checkpoint, range);
+            assertArrayEquals(Arrays.copyOfRange(data, 340_000, 390_000), range.toByteArray());
+        }
+    }
+
+    @Test
+    void rejectsBadWindowSizes() {
+        LongRangeFinder finder = new LongRangeFinder();
+        assertThrows(IllegalArgumentException.class, () -> finder.reset(LongRangeFinder.MIN_MATCH - 1));
+        assertThrows(IllegalArgumentException.class, () -> finder.reset(LZ77.MAX_LONG_WINDOW + 1));
+    }
+
+    private static byte[] random(long seed, int length) {
+        byte[] data = new byte[length];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+
+    private static byte[] copy(byte[] data, int from, int to, int length) {
+        System.arraycopy(data, from, data, to, length);
+        return data;
+    }
+}
@@ -0,0 +1,79 @@
+package deflate;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+// The price-based parse of the ultra level, against the lazy parse of level 9
+class OptimalParserTest {
+    private static final String[] WORDS = {"deflate", "inflate", "window", "offset", "length", "literal", "match",
+            "block", "<td>", "</td>", "<tr>", "</tr>\n"};
+
+    @Test
+    void codesSmallerThanTheLazyParse() {
+        byte[] data = text(1, 100_000);
+        TagBuffer lazy = encode(data, 0, 9, LZ77.MAX_LENGTH);
+        TagBuffer optimal = encode(data, 0, LZ77.ULTRA_LEVEL, LZ77.MAX_LENGTH);
+        assertArrayEquals(data, replay(optimal, data.length));
+        assertTrue(TokenCoder.encode(optimal, null).length <= TokenCoder.encode(lazy, null).length);
+    }
+
+    @Test
+    void keepsToTheMaximumLengthAndTheWindow() {
+        byte[] data = text(2, 3 * LZ77.WINDOW_SIZE);
+        TagBuffer tags = encode(data, 0, LZ77.ULTRA_LEVEL, 20);
+        for (int i = 0; i < tags.size(); i++) {
+            if (!tags.isLiteral(i)) {
+                assertTrue(tags.getLength(i) >= LZ77.MIN_MATCH && tags.getLength(i) <= 20);
+                assertTrue(tags.getOffset(i) <= LZ77.WINDOW_SIZE);
+            }
+        }
+        assertArrayEquals(data, replay(tags, data.length));
+    }
+
+    @Test
+    void matchesReachIntoTheHistory() {
+        byte[] data = "<p>history</p>|<p>history</p>".getBytes(StandardCharsets.US_ASCII);
+        TagBuffer tags = encode(data, 15, LZ77.ULTRA_LEVEL, LZ77.MAX_LENGTH);
+        assertEquals(1, tags.size());
+        assertEquals(15, tags.getOffset(0));
+        assertEquals(14, tags.getLength(0));
+    }
+
+    @Test
+    void ultraLevelArchivesRoundTrip() throws IOException {
+        byte[] random = new byte[5000];
+        new Random(3).nextBytes(random);
+        for (byte[] data : new byte[][] {new byte[0], {42}, "aaaa".getBytes(StandardCharsets.US_ASCII), random,
+                text(4, 300_000)}) {
+            assertArrayEquals(data, Main.decompress(Main.compress(data, LZ77.ULTRA_LEVEL)));
+        }
+    }
+
+    // Words in random order, where a longer search finds longer matches
+    private static byte[] text(long seed, int length) {
+        Random random = new Random(seed);
+        StringBuilder text = new StringBuilder();
+        while (text.length() < length) {
+            text.append(WORDS[random.nextInt(WORDS.length)]).append(random.nextInt(4) == 0 ? ", " : " ");
+        }
+        return text.substring(0, length).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static TagBuffer encode(byte[] data, int start, int level, int maxLength) {
+        TagBuffer tags = new TagBuffer();
+        LZ77.encode(data, start, data.length, level, maxLength, tags);
+        return tags;
+    }
+
+    private static byte[] replay(TagBuffer tags, int length) {
+        byte[] window = new byte[length];
+        assertEquals(length, LZ77.decompressFromTags(tags, window, 0, length));
+        return window;
+    }
+}
@@ -0,0 +1,104 @@
+package deflate;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Blocks compressed and decoded on a pool of threads, in the same archive format as the stream
+class ParallelDeflateTest {
+    private static final int SMALL_BLOCK = 1 << 12; // Many blocks in flight from little data
+    private static final byte[] PAGE = ("<tr><td>Java.html</td><td>80.479</td><td>33.356</td></tr>\n"
+            + "<tr><td>RTU.html</td><td>83.069</td><td>30.93</td></tr>\n").repeat(400)
+            .getBytes(StandardCharsets.US_ASCII);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void roundTripsPrimedAndIndependentBlocks() throws IOException {
+        for (boolean primed : new boolean[] {true, false}) {
+            byte[] archive = compress(PAGE, 4, primed);
+            assertArrayEquals(PAGE, Main.decompress(archive));
+            for (int threads : new int[] {1, 4}) {
+                assertArrayEquals(PAGE, decompress(archive, threads));
+            }
+        }
+    }
+
+    @Test
+    void primedBlocksCompressBetter() {
+        assertTrue(compress(PAGE, 4, true).length < compress(PAGE, 4, false).length);
+    }
+
+    @Test
+    void roundTripsEmptyAndPartialBlocks() throws IOException {
+        for (int length : new int[] {0, 1, SMALL_BLOCK, SMALL_BLOCK + 1}) {
+            byte[] data = new byte[length];
+            new Random(length).nextBytes(data);
+            assertArrayEquals(data, decompress(compress(data, 3, true), 3));
+        }
+    }
+
+    @Test
+    void decodesAStreamArchive() throws IOException {
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (DeflateOutputStream out = new DeflateOutputStream(archive, LZ77.DEFAULT_LEVEL, SMALL_BLOCK)) {
+            out.write(PAGE);
+        }
+        assertArrayEquals(PAGE, decompress(archive.toByteArray(), 4));
+    }
+
+    @Test
+    void corruptBlockFailsAndLeavesThePoolsUsable() throws IOException {
+        byte[] data = new byte[10 * SMALL_BLOCK];
+        new Random(1).nextBytes(data); // Stored blocks, where a flipped byte only shows in the checksum
+        byte[] archive = compress(data, 4, false);
+        byte[] corrupt = archive.clone();
+        corrupt[Archive.HEADER_SIZE + Archive.BLOCK_HEADER_SIZE + 10] ^= 1;
+
+        for (int run = 0; run < 3; run++) {
+            IOException e = assertThrows(IOException.class, () -> decompress(corrupt, 4));
+            assertEquals("Block checksum mismatch", e.getMessage());
+            assertArrayEquals(data, decompress(archive, 4));
+        }
+    }
+
+    @Test
+    void rejectsBadArguments() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertThrows(IllegalArgumentException.class, () -> ParallelDeflate.compress(new ByteArrayInputStream(PAGE),
+                out, LZ77.DEFAULT_LEVEL, 0, SMALL_BLOCK, true));
+        assertThrows(IllegalArgumentException.class, () -> ParallelDeflate.compress(new ByteArrayInputStream(PAGE),
+                out, LZ77.MAX_LEVEL + 1, 2, SMALL_BLOCK, true));
+        assertThrows(IllegalArgumentException.class, () -> ParallelDeflate.decompress(directory, out, 0));
+    }
+
+    private static byte[] compress(byte[] data, int threads, boolean primed) {
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try {
+            ParallelDeflate.compress(new ByteArrayInputStream(data), archive, LZ77.DEFAULT_LEVEL, threads,
+                    SMALL_BLOCK, primed);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        return archive.toByteArray();
+    }
+
+    private byte[] decompress(byte[] archive, int threads) throws IOException {
+        Path file = Files.write(directory.resolve("archive.dfl"), archive);
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        ParallelDeflate.decompress(file, data, threads);
+        return data.toByteArray();
+    }
+}
@@ -0,0 +1,72 @@
+package deflate;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+// Reading a file through buffers that are filled ahead of the caller, at sizes around the buffer boundaries
+class ReadAheadInputStreamTest {
+    private static final int MB = ReadAheadInputStream.BUFFER_SIZE;
+
+    @TempDir
+    Path directory;
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 1000, MB - 1, MB, MB + 1, 3 * MB, (ReadAheadInputStream.READ_AHEAD + 2) * MB + 17})
+    void readsInChunks(int length) throws IOException {
+        byte[] data = random(length);
+        ByteArrayOutputStream copy = new ByteArrayOutputStream();
+        try (ReadAheadInputStream in = new ReadAheadInputStream(write(data))) {
+            byte[] chunk = new byte[10_007]; // Never lines up with a buffer
+            for (int count = in.read(chunk, 0, chunk.length); count >= 0; count = in.read(chunk, 0, chunk.length)) {
+                copy.write(chunk, 0, count);
+            }
+            assertEquals(-1, in.read());
+            assertEquals(0, in.read(chunk, 0, 0));
+        }
+        assertArrayEquals(data, copy.toByteArray());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 1000, MB + 1})
+    void readsSingleBytes(int length) throws IOException {
+        byte[] data = random(length);
+        ByteArrayOutputStream copy = new ByteArrayOutputStream();
+        try (ReadAheadInputStream in = new ReadAheadInputStream(write(data))) {
+            for (int b = in.read(); b >= 0; b = in.read()) {
+                copy.write(b);
+            }
+        }
+        assertArrayEquals(data, copy.toByteArray());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1000, 2 * MB, (ReadAheadInputStream.READ_AHEAD + 2) * MB + 17})
+    void transfersEachBufferToACompressor(int length) throws IOException {
+        byte[] data = random(length);
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (ReadAheadInputStream in = new ReadAheadInputStream(write(data));
+             DeflateOutputStream out = new DeflateOutputStream(archive, LZ77.MIN_LEVEL)) {
+            assertEquals(length, in.transferTo(out));
+        }
+        assertArrayEquals(data, Main.decompress(archive.toByteArray()));
+    }
+
+    private static byte[] random(int length) {
+        byte[] data = new byte[length];
+        new Random(length).nextBytes(data);
+        return data;
+    }
+
+    private Path write(byte[] data) throws IOException {
+        return Files.write(directory.resolve("input"), data);
+    }
+}
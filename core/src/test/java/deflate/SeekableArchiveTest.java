@@ -0,0 +1,103 @@
+package deflate;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Range reads through the block index, and indexes that don't match their archive
+class SeekableArchiveTest {
+    private static final int SMALL_BLOCK = 1 << 12; // Many blocks from little data
+    private static final byte[] PAGE = ("<tr><td>Java.html</td><td>80.479</td><td>33.356</td></tr>\n"
+            + "<tr><td>RTU.html</td><td>83.069</td><td>30.93</td></tr>\n").repeat(400)
+            .getBytes(StandardCharsets.US_ASCII);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsRangesOfIndependentAndDependentBlocks() throws IOException {
+        long[][] ranges = {{0, 0}, {0, 1}, {100, 50}, {SMALL_BLOCK - 10, 20}, {SMALL_BLOCK, SMALL_BLOCK},
+                {3 * SMALL_BLOCK + 7, 2 * SMALL_BLOCK + 5}, {PAGE.length - 1, 1}, {0, PAGE.length}};
+        for (boolean independent : new boolean[] {true, false}) {
+            try (SeekableArchive archive = SeekableArchive.open(write(compress(PAGE, independent)))) {
+                assertEquals(independent, archive.isIndependent());
+                assertEquals(PAGE.length, archive.length());
+                for (long[] range : ranges) {
+                    int offset = (int) range[0];
+                    int length = (int) range[1];
+                    assertArrayEquals(Arrays.copyOfRange(PAGE, offset, offset + length),
+                            archive.readRange(offset, length));
+                }
+            }
+        }
+    }
+
+    @Test
+    void rejectsRangesOutsideTheArchive() throws IOException {
+        try (SeekableArchive archive = SeekableArchive.open(write(compress(PAGE, true)))) {
+            assertThrows(IllegalArgumentException.class, () -> archive.readRange(-1, 10));
+            assertThrows(IllegalArgumentException.class, () -> archive.readRange(0, -1));
+            assertThrows(IllegalArgumentException.class, () -> archive.readRange(PAGE.length - 5, 6));
+        }
+    }
+
+    @Test
+    void rejectsAnIndexThatDoesntMatchTheBlocks() throws IOException {
+        byte[] archive = compress(PAGE, true);
+        int entries = archive.length - BlockIndex.FOOTER_SIZE - (PAGE.length + SMALL_BLOCK - 1) / SMALL_BLOCK * 8;
+
+        byte[] tooLong = archive.clone();
+        ByteBuffer.wrap(tooLong).putInt(entries, SMALL_BLOCK + 1); // Raw length of the first block
+        IOException e = assertThrows(IOException.class, () -> SeekableArchive.open(write(tooLong)));
+        assertEquals("Corrupt block index", e.getMessage());
+
+        byte[] shifted = archive.clone();
+        ByteBuffer buffer = ByteBuffer.wrap(shifted);
+        buffer.putInt(entries + 4, buffer.getInt(entries + 4) + 1); // Compressed length of the first block
+        e = assertThrows(IOException.class, () -> SeekableArchive.open(write(shifted)));
+        assertEquals("Corrupt block index", e.getMessage());
+
+        byte[] truncated = Arrays.copyOf(archive, archive.length - 1);
+        e = assertThrows(IOException.class, () -> SeekableArchive.open(write(truncated)));
+        assertEquals("Archive has no block index", e.getMessage());
+    }
+
+    @Test
+    void corruptBlockOnlyFailsTheRangesThatNeedIt() throws IOException {
+        byte[] data = new byte[8 * SMALL_BLOCK];
+        new Random(1).nextBytes(data); // Stored blocks, where a flipped byte only shows in the checksum
+        byte[] archive = compress(data, true);
+        archive[Archive.HEADER_SIZE + Archive.BLOCK_HEADER_SIZE + 10] ^= 1;
+        try (SeekableArchive seekable = SeekableArchive.open(write(archive))) {
+            IOException e = assertThrows(IOException.class, () -> seekable.readRange(0, 10));
+            assertEquals("Block checksum mismatch", e.getMessage());
+            assertArrayEquals(Arrays.copyOfRange(data, 5 * SMALL_BLOCK, 6 * SMALL_BLOCK),
+                    seekable.readRange(5 * SMALL_BLOCK, SMALL_BLOCK));
+        }
+    }
+
+    private static byte[] compress(byte[] data, boolean independent) {
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (DeflateOutputStream out = new DeflateOutputStream(archive, LZ77.DEFAULT_LEVEL, SMALL_BLOCK, independent)) {
+            out.write(data);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        return archive.toByteArray();
+    }
+
+    private Path write(byte[] archive) throws IOException {
+        return Files.write(directory.resolve("archive.dfl"), archive);
+    }
+}
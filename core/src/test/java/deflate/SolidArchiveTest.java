@@ -0,0 +1,153 @@
+package deflate;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Solid archives: the file table, extracting single files from checkpoints, and corrupt archives
+class SolidArchiveTest {
+    private static final int FILES = 12;
+    private static final int CHECKPOINT_INTERVAL = 1 << 16; // Several checkpoints in a small archive
+
+    @TempDir
+    Path directory;
+
+    private final List<Path> files = new ArrayList<>();
+    private final List<String> names = new ArrayList<>();
+    private final List<byte[]> contents = new ArrayList<>();
+
+    @BeforeEach
+    void writeFiles() throws IOException {
+        for (int i = 0; i < FILES; i++) {
+            // An empty file, then files of up to 40 KB, every third one random
+            byte[] content;
+            if (i % 3 == 2) {
+                content = new byte[i * 3000];
+                new Random(i).nextBytes(content);
+            } else {
+                content = ("<tr><td>file" + i + ".html</td><td>80.479</td><td>33.356</td></tr>\n").repeat(i * 60)
+                        .getBytes(StandardCharsets.US_ASCII);
+            }
+            Path file = Files.write(directory.resolve("file" + i), content);
+            files.add(file);
+            names.add("dir" + i % 2 + "/file" + i + ".txt");
+            contents.add(content);
+        }
+    }
+
+    @Test
+    void extractsEveryFile() throws IOException {
+        Path archive = write(LZ77.WINDOW_SIZE);
+        try (SolidArchive solid = SolidArchive.open(archive, null)) {
+            assertEquals(FILES, solid.getEntries().size());
+            for (int i = 0; i < FILES; i++) {
+                SolidArchive.Entry entry = solid.find(names.get(i));
+                assertEquals(contents.get(i).length, entry.getSize());
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                solid.extract(entry, out);
+                assertArrayEquals(contents.get(i), out.toByteArray());
+            }
+            assertNull(solid.find("missing"));
+        }
+    }
+
+    @Test
+    void extractsAllFilesWithLongWindow() throws IOException {
+        Path archive = write(1 << 18);
+        Path target = directory.resolve("extracted");
+        try (SolidArchive solid = SolidArchive.open(archive, null)) {
+            solid.extractAll(target);
+        }
+        for (int i = 0; i < FILES; i++) {
+            assertArrayEquals(contents.get(i), Files.readAllBytes(target.resolve(names.get(i))));
+        }
+    }
+
+    @Test
+    void needsTheDictionaryItWasWrittenWith() throws IOException {
+        Dictionary dictionary = new Dictionary("<tr><td>file.html</td><td>80.479</td><td>33.356</td></tr>\n"
+                .getBytes(StandardCharsets.US_ASCII));
+        Path archive = Files.createTempFile(directory, "solid", ".dfs");
+        SolidArchive.write(files, names, archive, LZ77.DEFAULT_LEVEL, LZ77.WINDOW_SIZE, dictionary,
+                CHECKPOINT_INTERVAL);
+
+        IOException e = assertThrows(IOException.class, () -> SolidArchive.open(archive, null));
+        assertTrue(e.getMessage().startsWith("Archive needs dictionary"));
+        try (SolidArchive solid = SolidArchive.open(archive, dictionary)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            solid.extract(solid.find(names.get(FILES - 1)), out);
+            assertArrayEquals(contents.get(FILES - 1), out.toByteArray());
+        }
+    }
+
+    @Test
+    void streamIsAnOrdinaryArchive() throws IOException {
+        byte[] archive = Files.readAllBytes(write(LZ77.WINDOW_SIZE));
+        ByteArrayOutputStream all = new ByteArrayOutputStream();
+        contents.forEach(all::writeBytes);
+        assertArrayEquals(all.toByteArray(), Main.decompress(archive));
+    }
+
+    @Test
+    void rejectsCorruptFileTable() throws IOException {
+        byte[] archive = Files.readAllBytes(write(LZ77.WINDOW_SIZE));
+        long tableOffset = ByteBuffer.wrap(archive).getLong(archive.length - SolidArchive.FOOTER_SIZE);
+
+        byte[] wrongSize = archive.clone(); // The sizes of the first two files no longer add up
+        int firstSize = (int) tableOffset + 4 + 2 + names.get(0).length() + 8;
+        ByteBuffer.wrap(wrongSize).putLong(firstSize, 1);
+        assertThrows(IOException.class, () -> SolidArchive.open(write(wrongSize), null));
+
+        byte[] wrongOffset = archive.clone();
+        ByteBuffer.wrap(wrongOffset).putLong(archive.length - SolidArchive.FOOTER_SIZE, archive.length);
+        assertThrows(IOException.class, () -> SolidArchive.open(write(wrongOffset), null));
+
+        byte[] notSolid = Main.compress(contents.get(1), LZ77.DEFAULT_LEVEL);
+        IOException e = assertThrows(IOException.class, () -> SolidArchive.open(write(notSolid), null));
+        assertEquals("Not a solid archive", e.getMessage());
+    }
+
+    @Test
+    void detectsCorruptFileData() throws IOException {
+        byte[] archive = Files.readAllBytes(write(LZ77.WINDOW_SIZE));
+        archive[Archive.HEADER_SIZE + Archive.BLOCK_HEADER_SIZE + 1000] ^= 1;
+        try (SolidArchive solid = SolidArchive.open(write(archive), null)) {
+            SolidArchive.Entry entry = solid.find(names.get(1)); // In the first block
+            assertThrows(IOException.class, () -> solid.extract(entry, new ByteArrayOutputStream()));
+        }
+    }
+
+    @Test
+    void rejectsNamesOutsideTheDirectory() {
+        for (String name : new String[] {"../escape", "/absolute", "", "a/../../b"}) {
+            SolidArchive.Entry entry = new SolidArchive.Entry(name, 0, 0, 0);
+            IOException e = assertThrows(IOException.class, () -> SolidArchive.target(directory, entry));
+            assertTrue(e.getMessage().startsWith("Unsafe file name"));
+        }
+    }
+
+    private Path write(int windowSize) throws IOException {
+        Path archive = Files.createTempFile(directory, "solid", ".dfs");
+        SolidArchive.write(files, names, archive, LZ77.DEFAULT_LEVEL, windowSize, null, CHECKPOINT_INTERVAL);
+        return archive;
+    }
+
+    private Path write(byte[] archive) throws IOException {
+        return Files.write(Files.createTempFile(directory, "corrupt", ".dfs"), archive);
+    }
+}
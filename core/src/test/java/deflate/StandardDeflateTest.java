@@ -0,0 +1,154 @@
+package deflate;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+// RFC 1951 deflate with raw, zlib and gzip framing, checked against java.util.zip both ways
+class StandardDeflateTest {
+    private static final byte[] PAGE = ("<tr><td>Java.html</td><td>80.479</td><td>33.356</td></tr>\n"
+            + "<tr><td>RTU.html</td><td>83.069</td><td>30.93</td></tr>\n").repeat(2000)
+            .getBytes(StandardCharsets.US_ASCII);
+
+    @ParameterizedTest
+    @ValueSource(ints = {StandardDeflate.FORMAT_RAW, StandardDeflate.FORMAT_ZLIB, StandardDeflate.FORMAT_GZIP})
+    void roundTripsEveryFormat(int format) throws IOException {
+        byte[] random = new byte[200_000];
+        new Random(1).nextBytes(random);
+        for (byte[] data : new byte[][] {new byte[0], {42}, PAGE, random}) {
+            for (int level : new int[] {LZ77.MIN_LEVEL, LZ77.DEFAULT_LEVEL, LZ77.MAX_LEVEL}) {
+                byte[] compressed = compress(data, level, format);
+                assertArrayEquals(data, decompress(compressed, format));
+                if (format != StandardDeflate.FORMAT_RAW) {
+                    assertArrayEquals(data, decompress(compressed)); // Detected from the header
+                }
+            }
+        }
+    }
+
+    @Test
+    void javaUtilZipReadsOurOutput() throws IOException {
+        byte[] gzip = compress(PAGE, LZ77.DEFAULT_LEVEL, StandardDeflate.FORMAT_GZIP);
+        assertArrayEquals(PAGE, new GZIPInputStream(new ByteArrayInputStream(gzip)).readAllBytes());
+
+        byte[] zlib = compress(PAGE, LZ77.DEFAULT_LEVEL, StandardDeflate.FORMAT_ZLIB);
+        assertArrayEquals(PAGE, new InflaterInputStream(new ByteArrayInputStream(zlib)).readAllBytes());
+
+        byte[] raw = compress(PAGE, LZ77.DEFAULT_LEVEL, StandardDeflate.FORMAT_RAW);
+        assertArrayEquals(PAGE, new InflaterInputStream(new ByteArrayInputStream(raw), new Inflater(true))
+                .readAllBytes());
+        assertTrue(raw.length < PAGE.length / 20);
+    }
+
+    @Test
+    void readsJavaUtilZipOutput() throws IOException {
+        ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(gzip)) {
+            out.write(PAGE);
+        }
+        assertArrayEquals(PAGE, decompress(gzip.toByteArray()));
+
+        ByteArrayOutputStream zlib = new ByteArrayOutputStream();
+        try (DeflaterOutputStream out = new DeflaterOutputStream(zlib)) {
+            out.write(PAGE);
+        }
+        assertArrayEquals(PAGE, decompress(zlib.toByteArray()));
+    }
+
+    @Test
+    void concatenatedGzipMembersDecompressToBothContents() throws IOException {
+        byte[] first = "first member\n".getBytes(StandardCharsets.US_ASCII);
+        ByteArrayOutputStream both = new ByteArrayOutputStream();
+        both.write(compress(first, LZ77.DEFAULT_LEVEL, StandardDeflate.FORMAT_GZIP));
+        both.write(compress(PAGE, LZ77.DEFAULT_LEVEL, StandardDeflate.FORMAT_GZIP));
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        expected.write(first);
+        expected.write(PAGE);
+        assertArrayEquals(expected.toByteArray(), decompress(both.toByteArray()));
+    }
+
+    @Test
+    void rejectsChecksumMismatches() {
+        byte[] gzip = compress(PAGE, LZ77.DEFAULT_LEVEL, StandardDeflate.FORMAT_GZIP);
+        gzip[gzip.length - 8] ^= 1; // First byte of the CRC-32
+        IOException e = assertThrows(IOException.class, () -> decompress(gzip));
+        assertEquals("CRC-32 checksum mismatch", e.getMessage());
+
+        byte[] zlib = compress(PAGE, LZ77.DEFAULT_LEVEL, StandardDeflate.FORMAT_ZLIB);
+        zlib[zlib.length - 1] ^= 1; // Last byte of the Adler-32
+        e = assertThrows(IOException.class, () -> decompress(zlib));
+        assertEquals("Adler-32 checksum mismatch", e.getMessage());
+    }
+
+    @Test
+    void rejectsTruncatedStreams() {
+        for (int format : new int[] {StandardDeflate.FORMAT_RAW, StandardDeflate.FORMAT_ZLIB,
+                StandardDeflate.FORMAT_GZIP}) {
+            byte[] compressed = compress(PAGE, LZ77.DEFAULT_LEVEL, format);
+            for (int length : new int[] {1, compressed.length / 2, compressed.length - 1}) {
+                assertThrows(IOException.class, () -> decompress(Arrays.copyOf(compressed, length), format));
+            }
+        }
+    }
+
+    @Test
+    void corruptStreamsFailWithIOException() {
+        byte[] compressed = compress(PAGE, LZ77.DEFAULT_LEVEL, StandardDeflate.FORMAT_RAW);
+        Random random = new Random(2);
+        for (int i = 0; i < 1000; i++) {
+            byte[] corrupt = compressed.clone();
+            corrupt[random.nextInt(Math.min(corrupt.length, 200))] ^= (byte) (1 << random.nextInt(8));
+            try {
+                decompress(corrupt, StandardDeflate.FORMAT_RAW);
+            } catch (IOException e) {
+                // Expected for most flips, anything else fails the test
+            }
+        }
+    }
+
+    @Test
+    void rejectsBadArguments() {
+        assertThrows(IllegalArgumentException.class, () -> compress(PAGE, LZ77.DEFAULT_LEVEL, 3));
+        assertThrows(IllegalArgumentException.class, () -> compress(PAGE, 0, StandardDeflate.FORMAT_RAW));
+        assertThrows(IllegalArgumentException.class, () -> decompress(new byte[10], 3));
+    }
+
+    private static byte[] compress(byte[] data, int level, int format) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            StandardDeflate.compress(new ByteArrayInputStream(data), out, level, format);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] decompress(byte[] compressed) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StandardDeflate.decompress(new ByteArrayInputStream(compressed), out);
+        return out.toByteArray();
+    }
+
+    private static byte[] decompress(byte[] compressed, int format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StandardDeflate.decompress(new ByteArrayInputStream(compressed), out, format);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,88 @@
+package deflate;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+// Writing a file through buffers that are written behind the caller: the small heap buffer first, then up to
+// WRITE_BEHIND direct buffers in flight
+class WriteBehindOutputStreamTest {
+    private static final int FIRST = WriteBehindOutputStream.FIRST_BUFFER_SIZE;
+    private static final int MB = WriteBehindOutputStream.BUFFER_SIZE;
+
+    @TempDir
+    Path directory;
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 1000, FIRST - 1, FIRST, FIRST + 1, FIRST + MB, 3 * MB,
+            (WriteBehindOutputStream.WRITE_BEHIND + 2) * MB + 17})
+    void writesInChunks(int length) throws IOException {
+        byte[] data = random(length);
+        Path file = directory.resolve("output");
+        try (WriteBehindOutputStream out = new WriteBehindOutputStream(file)) {
+            for (int offset = 0; offset < length; offset += 10_007) { // Never lines up with a buffer
+                out.write(data, offset, Math.min(10_007, length - offset));
+            }
+        }
+        assertArrayEquals(data, Files.readAllBytes(file));
+    }
+
+    @Test
+    void writesSingleBytesAndWholeBuffers() throws IOException {
+        byte[] data = random(FIRST + 2 * MB + 3);
+        Path file = directory.resolve("output");
+        try (WriteBehindOutputStream out = new WriteBehindOutputStream(file)) {
+            out.write(data[0]);
+            out.write(data, 1, FIRST - 1); // Fills the heap buffer exactly
+            out.write(data, FIRST, MB);
+            out.write(data, FIRST + MB, MB);
+            for (int i = FIRST + 2 * MB; i < data.length; i++) {
+                out.write(data[i]);
+            }
+        }
+        assertArrayEquals(data, Files.readAllBytes(file));
+    }
+
+    @Test
+    void flushWritesEverythingSoFar() throws IOException {
+        byte[] data = random(MB + 500);
+        Path file = directory.resolve("output");
+        try (WriteBehindOutputStream out = new WriteBehindOutputStream(file)) {
+            out.write(data, 0, 100);
+            out.flush();
+            assertArrayEquals(Arrays.copyOf(data, 100), Files.readAllBytes(file));
+            out.write(data, 100, data.length - 100);
+            out.flush();
+            assertEquals(data.length, Files.size(file));
+        }
+        assertArrayEquals(data, Files.readAllBytes(file));
+    }
+
+    @Test
+    void truncatesTheFileAndRefusesWritesAfterClose() throws IOException {
+        Path file = Files.write(directory.resolve("output"), random(5000));
+        WriteBehindOutputStream out = new WriteBehindOutputStream(file);
+        out.write(random(10));
+        out.close();
+        out.close(); // A second close does nothing
+        assertArrayEquals(random(10), Files.readAllBytes(file));
+        IOException e = assertThrows(IOException.class, () -> out.write(1));
+        assertEquals("Stream closed", e.getMessage());
+    }
+
+    private static byte[] random(int length) {
+        byte[] data = new byte[length];
+        new Random(length).nextBytes(data);
+        return data;
+    }
+}